@@ -1,7 +1,9 @@
 package org.jsoup;
 
 import org.jsoup.nodes.Document;
+import org.jsoup.parser.BatchHandler;
 import org.jsoup.parser.Parser;
+import org.jsoup.parser.ParserPool;
 import org.jsoup.safety.Cleaner;
 import org.jsoup.safety.Whitelist;
 import org.jsoup.helper.DataUtil;
@@ -11,6 +13,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.Executor;
 
 /**
  The core public access point to the jsoup functionality.
@@ -88,6 +91,57 @@ public class Jsoup {
         return DataUtil.load(in, charsetName, baseUri);
     }
 
+    /**
+     Parse the contents of a file, by memory mapping it. The charset detection and decoding read the file's bytes straight
+     from the mapped region, which saves copying larger files through stream buffers. The file mapping is released when
+     it is garbage collected, so on some platforms (e.g. Windows) the file can't be deleted or modified until then.
+
+     @param in          file to load HTML from
+     @param charsetName (optional) character set of file contents. Set to {@code null} to determine from {@code http-equiv} meta tag, if
+     present, or fall back to {@code UTF-8} (which is often safe to do).
+     @param baseUri     The URL where the HTML was retrieved from, to resolve relative links against.
+     @param parser alternate {@link Parser#xmlParser() parser} to use.
+     @return sane HTML
+
+     @throws IOException if the file could not be found, or read, or if the charsetName is invalid.
+     @see #parse(File, String, String)
+     */
+    public static Document parseMapped(File in, String charsetName, String baseUri, Parser parser) throws IOException {
+        return DataUtil.loadMapped(in, charsetName, baseUri, parser);
+    }
+
+    /**
+     Parse the contents of a file as HTML, by memory mapping it.
+
+     @param in          file to load HTML from
+     @param charsetName (optional) character set of file contents. Set to {@code null} to determine from {@code http-equiv} meta tag, if
+     present, or fall back to {@code UTF-8} (which is often safe to do).
+     @param baseUri     The URL where the HTML was retrieved from, to resolve relative links against.
+     @return sane HTML
+
+     @throws IOException if the file could not be found, or read, or if the charsetName is invalid.
+     @see #parseMapped(File, String, String, Parser)
+     */
+    public static Document parseMapped(File in, String charsetName, String baseUri) throws IOException {
+        return DataUtil.loadMapped(in, charsetName, baseUri, Parser.htmlParser());
+    }
+
+    /**
+     Parse a batch of files as HTML, in parallel on the executor. Each file's location is used as its base URI, and its
+     charset is determined from its {@code http-equiv} meta tag, or falls back to {@code UTF-8}. Parsers are pooled
+     across the batch, and no more files are submitted than the pool can serve at once. Returns when every file has
+     been reported to the handler, as a document or a failure.
+
+     @param files    the files to parse
+     @param executor the executor to parse on
+     @param handler  the handler to receive each document or failure; called from the executor's threads
+     @throws InterruptedException if interrupted while waiting for the batch
+     @see ParserPool#parseFiles(Iterable, Executor, BatchHandler)
+     */
+    public static void parseAll(Iterable<File> files, Executor executor, BatchHandler<File> handler) throws InterruptedException {
+        new ParserPool(Parser.htmlParser()).parseFiles(files, executor, handler);
+    }
+
     /**
      Parse the contents of a file as HTML. The location of the file is used as the base URI to qualify relative URLs.
 
@@ -0,0 +1,211 @@
+package org.jsoup.helper;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ Finds a declared charset in the first bytes of an input, before it is decoded, by scanning for a {@code <meta charset>}
+ or {@code <meta http-equiv=content-type>} element, or an {@code <?xml encoding?>} declaration. Follows the shape of the
+ WHATWG encoding prescan: comments and the attributes of other tags are skipped over, and a meta element is only read
+ for its attributes, so no Document is built. The input is assumed to be ASCII compatible.
+ */
+final class CharsetPrescanner {
+    private final ByteBuffer bytes;
+    private final int end;
+    private int pos;
+
+    // the attribute last read by nextAttribute()
+    private String attrName;
+    private String attrValue;
+
+    private CharsetPrescanner(ByteBuffer bytes) {
+        this.bytes = bytes;
+        pos = bytes.position();
+        end = bytes.limit();
+    }
+
+    /**
+     Scan the bytes for a declared charset. The first meta element that declares one wins; the XML declaration is only
+     used if there is none. The buffer's position is not changed.
+     @param bytes the first bytes of the input
+     @return the declared charset name (not validated, and possibly empty), or null if none was found
+     */
+    static String scan(ByteBuffer bytes) {
+        return new CharsetPrescanner(bytes).scan();
+    }
+
+    private String scan() {
+        String xmlEncoding = null;
+        skipWhitespace();
+        if (matchesIgnoreCase("<?xml")) {
+            pos += 5;
+            while (nextAttribute()) {
+                if (attrName.equals("encoding")) {
+                    xmlEncoding = attrValue;
+                    break;
+                }
+            }
+        }
+
+        while (pos < end) {
+            if (matches("<!--")) {
+                pos = indexOf("-->", pos + 2); // the comment's -- may also close it, as in <!-->
+                pos = pos == -1 ? end : pos + 3;
+            } else if (matchesIgnoreCase("<meta") && isSpaceOrSlash(pos + 5)) {
+                pos += 5;
+                String found = readMeta();
+                if (found != null)
+                    return found;
+            } else if (matches("<") && isAsciiLetter(pos + 1) || matches("</") && isAsciiLetter(pos + 2)) {
+                pos++;
+                while (pos < end && !isSpaceOrSlash(pos) && byteAt(pos) != '>')
+                    pos++; // the tag name
+                while (nextAttribute()) { /* skip, so that a > in a quoted value does not end the tag */ }
+            } else if (matches("<!") || matches("</") || matches("<?")) {
+                pos = indexOf(">", pos);
+                pos = pos == -1 ? end : pos + 1;
+            } else {
+                pos++;
+            }
+        }
+        return xmlEncoding;
+    }
+
+    // reads a meta element's attributes, and returns its declared charset, if any. As in the parsed DOM, the first of a
+    // repeated attribute is used, and a content type's charset takes precedence over a charset attribute
+    private String readMeta() {
+        String httpEquiv = null, content = null, charset = null;
+        while (nextAttribute()) {
+            if (attrName.equals("http-equiv") && httpEquiv == null)
+                httpEquiv = attrValue;
+            else if (attrName.equals("content") && content == null)
+                content = attrValue;
+            else if (attrName.equals("charset") && charset == null)
+                charset = attrValue;
+        }
+
+        String found = null;
+        if (httpEquiv != null && httpEquiv.trim().equalsIgnoreCase("content-type"))
+            found = DataUtil.getCharsetFromContentType(content);
+        if (found == null)
+            found = charset;
+        return found;
+    }
+
+    /**
+     Reads the next attribute of a tag, into attrName (lower cased) and attrValue (empty if none).
+     @return true if an attribute was read; false if the end of the tag (or input) was reached
+     */
+    private boolean nextAttribute() {
+        while (pos < end && (isWhitespace(byteAt(pos)) || byteAt(pos) == '/' || byteAt(pos) == '?'))
+            pos++;
+        if (pos >= end)
+            return false;
+        if (byteAt(pos) == '>') {
+            pos++;
+            return false;
+        }
+
+        final int nameStart = pos;
+        pos++; // a leading = is part of the name
+        while (pos < end) {
+            final char c = byteAt(pos);
+            if (c == '=' || c == '/' || c == '>' || isWhitespace(c))
+                break;
+            pos++;
+        }
+        attrName = string(nameStart, pos).toLowerCase(Locale.ENGLISH);
+        attrValue = "";
+
+        skipWhitespace();
+        if (pos >= end || byteAt(pos) != '=')
+            return true;
+        pos++;
+        skipWhitespace();
+        if (pos >= end)
+            return true;
+
+        final char quote = byteAt(pos);
+        final int valueStart;
+        if (quote == '"' || quote == '\'') {
+            valueStart = ++pos;
+            while (pos < end && byteAt(pos) != quote)
+                pos++;
+            attrValue = string(valueStart, pos);
+            pos++;
+        } else {
+            valueStart = pos;
+            while (pos < end && byteAt(pos) != '>' && !isWhitespace(byteAt(pos)))
+                pos++;
+            attrValue = string(valueStart, pos);
+        }
+        return true;
+    }
+
+    private char byteAt(int i) {
+        return (char) (bytes.get(i) & 0xFF);
+    }
+
+    private String string(int start, int stop) {
+        stop = Math.min(stop, end);
+        final char[] chars = new char[stop - start];
+        for (int i = start; i < stop; i++)
+            chars[i - start] = byteAt(i);
+        return new String(chars);
+    }
+
+    private boolean matches(String seq) {
+        if (end - pos < seq.length())
+            return false;
+        for (int i = 0; i < seq.length(); i++) {
+            if (byteAt(pos + i) != seq.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean matchesIgnoreCase(String seq) {
+        if (end - pos < seq.length())
+            return false;
+        for (int i = 0; i < seq.length(); i++) {
+            char c = byteAt(pos + i);
+            if (c >= 'A' && c <= 'Z')
+                c += 32;
+            if (c != seq.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private int indexOf(String seq, int from) {
+        final int last = end - seq.length();
+        OUTER: for (int i = from; i <= last; i++) {
+            for (int j = 0; j < seq.length(); j++) {
+                if (byteAt(i + j) != seq.charAt(j))
+                    continue OUTER;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(byteAt(pos)))
+            pos++;
+    }
+
+    private boolean isSpaceOrSlash(int i) {
+        return i < end && (isWhitespace(byteAt(i)) || byteAt(i) == '/');
+    }
+
+    private boolean isAsciiLetter(int i) {
+        if (i >= end)
+            return false;
+        final char c = byteAt(i);
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+    }
+}
@@ -4,25 +4,21 @@ import org.jsoup.UncheckedIOException;
 import org.jsoup.internal.ConstrainableInputStream;
 import org.jsoup.internal.Normalizer;
 import org.jsoup.internal.StringUtil;
-import org.jsoup.nodes.Comment;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.nodes.Node;
-import org.jsoup.nodes.XmlDeclaration;
 import org.jsoup.parser.Parser;
-import org.jsoup.select.Elements;
 
 import java.io.BufferedReader;
-import java.io.CharArrayReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.util.Locale;
@@ -58,6 +54,22 @@ public final class DataUtil {
      * @throws IOException on IO error
      */
     public static Document load(File in, String charsetName, String baseUri) throws IOException {
+        return load(in, charsetName, baseUri, Parser.htmlParser());
+    }
+
+    /**
+     * Loads and parses a file to a Document, using the provided Parser. Files that are compressed with gzip (and end in
+     * {@code .gz} or {@code .z}) are supported in addition to uncompressed files.
+     *
+     * @param in file to load
+     * @param charsetName (optional) character set of input; specify {@code null} to attempt to autodetect. A BOM in
+     *     the file will always override this setting.
+     * @param baseUri base URI of document, to resolve relative links against
+     * @param parser alternate {@link Parser#xmlParser() parser} to use.
+     * @return Document
+     * @throws IOException on IO error
+     */
+    public static Document load(File in, String charsetName, String baseUri, Parser parser) throws IOException {
         InputStream stream = new FileInputStream(in);
         String name = Normalizer.lowerCase(in.getName());
         if (name.endsWith(".gz") || name.endsWith(".z")) {
@@ -66,7 +78,42 @@ public final class DataUtil {
             stream.close();
             stream = zipped ? new GZIPInputStream(new FileInputStream(in)) : new FileInputStream(in);
         }
-        return parseInputStream(stream, charsetName, baseUri, Parser.htmlParser());
+        return parseInputStream(stream, charsetName, baseUri, parser);
+    }
+
+    /**
+     * Loads and parses a file to a Document, by memory mapping it. The charset detection and decoding read the file's
+     * bytes straight from the mapped region, vs through a stream's buffers. Files that are compressed with gzip are
+     * read through a stream, as in {@link #load(File, String, String)}.
+     * <p>The mapping is released when it is garbage collected, so (on some platforms) the file can not be deleted until
+     * then.</p>
+     *
+     * @param in file to load
+     * @param charsetName (optional) character set of input; specify {@code null} to attempt to autodetect. A BOM in
+     *     the file will always override this setting.
+     * @param baseUri base URI of document, to resolve relative links against
+     * @param parser the parser to use
+     * @return Document
+     * @throws IOException on IO error
+     */
+    public static Document loadMapped(File in, String charsetName, String baseUri, Parser parser) throws IOException {
+        final FileInputStream stream = new FileInputStream(in);
+        final MappedByteBuffer mapped;
+        try {
+            final FileChannel channel = stream.getChannel();
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) // larger than a buffer can map; would also be larger than a document can hold
+                throw new IOException("File is too large to map: " + in);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            stream.close(); // the mapping remains valid after the channel is closed
+        }
+
+        final String name = Normalizer.lowerCase(in.getName());
+        if ((name.endsWith(".gz") || name.endsWith(".z"))
+            && mapped.limit() >= 2 && mapped.get(0) == (byte) 0x1f && mapped.get(1) == (byte) 0x8b) // gzip magic bytes
+            return parseInputStream(new GZIPInputStream(new ByteBufferInputStream(mapped)), charsetName, baseUri, parser);
+        return parseByteData(mapped, charsetName, baseUri, parser);
     }
 
     /**
@@ -113,91 +160,69 @@ public final class DataUtil {
             return new Document(baseUri);
         input = ConstrainableInputStream.wrap(input, bufferSize, 0);
 
-        Document doc = null;
-
         // read the start of the stream and look for a BOM or meta charset
         input.mark(bufferSize);
         ByteBuffer firstBytes = readToByteBuffer(input, firstReadBufferSize - 1); // -1 because we read one more to see if completed. First read is < buffer size, so can't be invalid.
-        boolean fullyRead = (input.read() == -1);
         input.reset();
 
+        Document doc = parse(input, firstBytes, charsetName, baseUri, parser);
+        input.close();
+        return doc;
+    }
+
+    /**
+     Parses a Document from byte data, such as a memory mapped file. The bytes are read from the buffer as they are
+     decoded, vs copied into a stream buffer.
+     @param byteData the bytes to parse, from the buffer's position to its limit
+     @param charsetName character set of input; null to detect from the BOM or meta charset
+     @param baseUri base URI of document, to resolve relative links against
+     @param parser the parser to use
+     @return Document
+     @throws IOException on IO error
+     */
+    static Document parseByteData(ByteBuffer byteData, String charsetName, String baseUri, Parser parser) throws IOException {
+        ByteBuffer firstBytes = byteData.slice();
+        ((Buffer) firstBytes).limit(Math.min(firstBytes.limit(), firstReadBufferSize - 1)); // cast for backward compat, as in detectCharsetFromBom
+        return parse(new ByteBufferInputStream(byteData), firstBytes, charsetName, baseUri, parser);
+    }
+
+    // detects the charset from the first bytes (if not set), and parses the input
+    private static Document parse(InputStream input, ByteBuffer firstBytes, String charsetName, String baseUri, Parser parser) throws IOException {
         // look for BOM - overrides any other header or input
         BomCharset bomCharset = detectCharsetFromBom(firstBytes);
         if (bomCharset != null)
             charsetName = bomCharset.charset;
 
-        if (charsetName == null) { // determine from meta. safe first parse as UTF-8
-            try {
-                CharBuffer defaultDecoded = Charset.forName(defaultCharset).decode(firstBytes);
-                if (defaultDecoded.hasArray())
-                    doc = parser.parseInput(new CharArrayReader(defaultDecoded.array()), baseUri);
-                else
-                    doc = parser.parseInput(defaultDecoded.toString(), baseUri);
-            } catch (UncheckedIOException e) {
-                throw e.ioException();
-            }
-
-            // look for <meta http-equiv="Content-Type" content="text/html;charset=gb2312"> or HTML5 <meta charset="gb2312">
-            Elements metaElements = doc.select("meta[http-equiv=content-type], meta[charset]");
-            String foundCharset = null; // if not found, will keep utf-8 as best attempt
-            for (Element meta : metaElements) {
-                if (meta.hasAttr("http-equiv"))
-                    foundCharset = getCharsetFromContentType(meta.attr("content"));
-                if (foundCharset == null && meta.hasAttr("charset"))
-                    foundCharset = meta.attr("charset");
-                if (foundCharset != null)
-                    break;
-            }
-
-            // look for <?xml encoding='ISO-8859-1'?>
-            if (foundCharset == null && doc.childNodeSize() > 0) {
-                Node first = doc.childNode(0);
-                XmlDeclaration decl = null;
-                if (first instanceof XmlDeclaration)
-                    decl = (XmlDeclaration) first;
-                else if (first instanceof Comment) {
-                    Comment comment = (Comment) first;
-                    if (comment.isXmlDeclaration())
-                        decl = comment.asXmlDeclaration();
-                }
-                if (decl != null) {
-                    if (decl.name().equalsIgnoreCase("xml"))
-                        foundCharset = decl.attr("encoding");
-                }
-            }
-            foundCharset = validateCharset(foundCharset);
-            if (foundCharset != null && !foundCharset.equalsIgnoreCase(defaultCharset)) { // need to re-decode. (case insensitive check here to match how validate works)
-                foundCharset = foundCharset.trim().replaceAll("[\"']", "");
-                charsetName = foundCharset;
-                doc = null;
-            } else if (!fullyRead) {
-                doc = null;
-            }
+        if (charsetName == null) { // determine from meta, by prescanning the bytes. if not found, will use utf-8 as best attempt
+            // looks for <meta http-equiv="Content-Type" content="text/html;charset=gb2312">, HTML5 <meta charset="gb2312">,
+            // or <?xml encoding='ISO-8859-1'?>
+            charsetName = validateCharset(CharsetPrescanner.scan(firstBytes));
+            if (charsetName == null)
+                charsetName = defaultCharset;
         } else { // specified by content type header (or by user on file load)
             Validate.notEmpty(charsetName, "Must set charset arg to character set of file to parse. Set to null to attempt to detect from HTML");
         }
-        if (doc == null) {
-            if (charsetName == null)
-                charsetName = defaultCharset;
-            BufferedReader reader = new BufferedReader(new InputStreamReader(input, charsetName), bufferSize);
-            if (bomCharset != null && bomCharset.offset) { // creating the buffered reader ignores the input pos, so must skip here
-                long skipped = reader.skip(1);
-                Validate.isTrue(skipped == 1); // WTF if this fails.
-            }
-            try {
-                doc = parser.parseInput(reader, baseUri);
-            } catch (UncheckedIOException e) {
-                // io exception when parsing (not seen before because reading the stream as we go)
-                throw e.ioException();
-            }
-            Charset charset = Charset.forName(charsetName);
-            doc.outputSettings().charset(charset);
-            if (!charset.canEncode()) {
-                // some charsets can read but not encode; switch to an encodable charset and update the meta el
-                doc.charset(Charset.forName(defaultCharset));
-            }
+
+        Reader reader = DecodingReader.forCharset(input, charsetName); // a fast path for UTF-8 and single-byte charsets
+        if (reader == null)
+            reader = new BufferedReader(new InputStreamReader(input, charsetName), bufferSize);
+        if (bomCharset != null && bomCharset.offset) { // creating the buffered reader ignores the input pos, so must skip here
+            long skipped = reader.skip(1);
+            Validate.isTrue(skipped == 1); // WTF if this fails.
+        }
+        Document doc;
+        try {
+            doc = parser.parseInput(reader, baseUri);
+        } catch (UncheckedIOException e) {
+            // io exception when parsing (not seen before because reading the stream as we go)
+            throw e.ioException();
+        }
+        Charset charset = Charset.forName(charsetName);
+        doc.outputSettings().charset(charset);
+        if (!charset.canEncode()) {
+            // some charsets can read but not encode; switch to an encodable charset and update the meta el
+            doc.charset(Charset.forName(defaultCharset));
         }
-        input.close();
         return doc;
     }
 
@@ -282,6 +307,38 @@ public final class DataUtil {
         return null;
     }
 
+    /**
+     An InputStream over a ByteBuffer, which reads its bytes in bulk straight from the buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
     private static class BomCharset {
         private final String charset;
         private final boolean offset;
@@ -0,0 +1,255 @@
+package org.jsoup.helper;
+
+import org.jsoup.internal.Normalizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ A Reader that decodes UTF-8 or a single-byte charset from an input stream, directly into the caller's char array. vs an
+ InputStreamReader, it is not synchronized, runs a tight loop over ASCII, and (not supporting mark) lets the
+ CharacterReader fill its buffer in place, without a BufferedReader between them. Malformed input is replaced with
+ U+FFFD in the same way as the JDK's decoders, so the decoded text is the same.
+ */
+final class DecodingReader extends Reader {
+    private static final int BufferSize = 1024 * 32;
+    private static final char Replacement = '\uFFFD';
+
+    private final InputStream in;
+    private final char[] table; // byte to char map for a single-byte charset; null for UTF-8
+    private final byte[] buf = new byte[BufferSize];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private char pendingLow; // the low surrogate of a supplementary character, if the last read ended between the pair
+
+    private DecodingReader(InputStream in, char[] table) {
+        this.in = in;
+        this.table = table;
+    }
+
+    /**
+     Get a DecodingReader for the charset, if it is supported.
+     @param in the input to decode
+     @param charsetName the input's charset
+     @return a DecodingReader, or null if the charset is not UTF-8 or a single-byte charset
+     */
+    static DecodingReader forCharset(InputStream in, String charsetName) {
+        final Charset charset;
+        try {
+            charset = Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {
+            return null; // an unsupported or illegal name; left to the InputStreamReader to report
+        }
+        final String name = Normalizer.lowerCase(charset.name());
+        if (name.equals("utf-8"))
+            return new DecodingReader(in, null);
+        final char[] table = singleByteTable(charset);
+        return table != null ? new DecodingReader(in, table) : null;
+    }
+
+    // decodes each byte value through the charset, if it maps every byte to one char (and so is single-byte)
+    private static char[] singleByteTable(Charset charset) {
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1f)
+            return null;
+        final byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) i;
+        try {
+            CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer decoded = decoder.decode(ByteBuffer.wrap(bytes));
+            if (decoded.remaining() != bytes.length)
+                return null;
+            final char[] table = new char[bytes.length];
+            decoded.get(table);
+            return table;
+        } catch (Exception e) {
+            return null; // e.g. an unusual charset that doesn't decode byte by byte; use its own decoder
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len <= 0)
+            return 0;
+        if (pendingLow != 0) {
+            cbuf[off] = pendingLow;
+            pendingLow = 0;
+            return 1;
+        }
+
+        int read = table == null ? decodeUtf8(cbuf, off, off + len) : decodeTable(cbuf, off, off + len);
+        while (read == 0) {
+            final int filled = fill();
+            if (filled == -1) {
+                if (pos < limit) { // an incomplete sequence at the end of the input
+                    pos = limit;
+                    cbuf[off] = Replacement;
+                    return 1;
+                }
+                return -1;
+            } // else, if no bytes were ready (e.g. a socket read timed out), read again, as an InputStreamReader would
+            read = table == null ? decodeUtf8(cbuf, off, off + len) : decodeTable(cbuf, off, off + len);
+        }
+        return read;
+    }
+
+    // moves any remaining (partial sequence) bytes to the start of the buffer, and reads more in after them
+    private int fill() throws IOException {
+        if (eof)
+            return -1;
+        final int remaining = limit - pos;
+        System.arraycopy(buf, pos, buf, 0, remaining);
+        pos = 0;
+        limit = remaining;
+        final int read = in.read(buf, limit, buf.length - limit);
+        if (read == -1) {
+            eof = true;
+            return -1;
+        }
+        limit += read;
+        return read;
+    }
+
+    private int decodeTable(char[] cbuf, int off, int end) {
+        final char[] table = this.table;
+        final byte[] buf = this.buf;
+        int p = pos;
+        int o = off;
+        final int stop = Math.min(end, off + limit - p);
+        while (o < stop)
+            cbuf[o++] = table[buf[p++] & 0xFF];
+        pos = p;
+        return o - off;
+    }
+
+    /**
+     Decodes the buffered bytes into cbuf, stopping at the end of either, or at a sequence that is split by the end of
+     the buffered bytes (which will be completed by the next fill).
+     */
+    private int decodeUtf8(char[] cbuf, int off, int end) {
+        final byte[] buf = this.buf;
+        final int limit = this.limit;
+        int p = pos;
+        int o = off;
+
+        while (o < end) {
+            // ASCII run
+            final int asciiStop = Math.min(limit, p + end - o);
+            while (p < asciiStop && buf[p] >= 0)
+                cbuf[o++] = (char) buf[p++];
+            if (p >= limit || o >= end)
+                break;
+
+            final int b1 = buf[p];
+            final int remaining = limit - p;
+            if ((b1 >> 5) == -2 && (b1 & 0x1e) != 0) { // 2 bytes, 11 bits: 110xxxxx 10xxxxxx
+                if (remaining < 2)
+                    break;
+                final int b2 = buf[p + 1];
+                if (isNotContinuation(b2)) {
+                    cbuf[o++] = Replacement;
+                    p++;
+                } else {
+                    cbuf[o++] = (char) (((b1 << 6) ^ b2) ^ (((byte) 0xC0 << 6) ^ ((byte) 0x80)));
+                    p += 2;
+                }
+            } else if ((b1 >> 4) == -2) { // 3 bytes, 16 bits: 1110xxxx 10xxxxxx 10xxxxxx
+                if (remaining < 3) {
+                    if (remaining > 1 && isMalformed3_2(b1, buf[p + 1])) {
+                        cbuf[o++] = Replacement;
+                        p++;
+                        continue;
+                    }
+                    break;
+                }
+                final int b2 = buf[p + 1];
+                final int b3 = buf[p + 2];
+                if (isMalformed3(b1, b2, b3)) {
+                    cbuf[o++] = Replacement;
+                    p += (b1 == (byte) 0xE0 && (b2 & 0xE0) == 0x80) || isNotContinuation(b2) ? 1 : 2;
+                } else {
+                    final char c = (char) ((b1 << 12) ^ (b2 << 6) ^ (b3 ^ (((byte) 0xE0 << 12) ^ ((byte) 0x80 << 6) ^ ((byte) 0x80))));
+                    cbuf[o++] = c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE ? Replacement : c;
+                    p += 3;
+                }
+            } else if ((b1 >> 3) == -2) { // 4 bytes, 21 bits: 11110xxx 10xxxxxx 10xxxxxx 10xxxxxx
+                if (remaining < 4) {
+                    if (remaining > 1 && isMalformed4_2(b1, buf[p + 1])) {
+                        cbuf[o++] = Replacement;
+                        p++;
+                        continue;
+                    }
+                    if (remaining > 2 && isNotContinuation(buf[p + 2])) {
+                        cbuf[o++] = Replacement;
+                        p += 2;
+                        continue;
+                    }
+                    break;
+                }
+                final int b2 = buf[p + 1];
+                final int b3 = buf[p + 2];
+                final int b4 = buf[p + 3];
+                final int cp = ((b1 << 18) ^ (b2 << 12) ^ (b3 << 6) ^
+                    (b4 ^ (((byte) 0xF0 << 18) ^ ((byte) 0x80 << 12) ^ ((byte) 0x80 << 6) ^ ((byte) 0x80))));
+                if (isNotContinuation(b2) || isNotContinuation(b3) || isNotContinuation(b4)
+                    || !Character.isSupplementaryCodePoint(cp)) {
+                    cbuf[o++] = Replacement;
+                    if (isMalformed4_2(b1, b2))
+                        p++;
+                    else if (isNotContinuation(b3))
+                        p += 2;
+                    else
+                        p += 3;
+                } else {
+                    final char low = (char) ((cp & 0x3FF) + Character.MIN_LOW_SURROGATE);
+                    cbuf[o++] = (char) ((cp >>> 10) + (Character.MIN_HIGH_SURROGATE - (Character.MIN_SUPPLEMENTARY_CODE_POINT >>> 10)));
+                    if (o < end)
+                        cbuf[o++] = low;
+                    else
+                        pendingLow = low;
+                    p += 4;
+                }
+            } else { // an unexpected continuation, or an overlong or out of range lead byte
+                cbuf[o++] = Replacement;
+                p++;
+            }
+        }
+        pos = p;
+        return o - off;
+    }
+
+    private static boolean isNotContinuation(int b) {
+        return (b & 0xC0) != 0x80;
+    }
+
+    // an E0 lead can't be followed by 80..9F (overlong), and the second byte must be a continuation
+    private static boolean isMalformed3(int b1, int b2, int b3) {
+        return (b1 == (byte) 0xE0 && (b2 & 0xE0) == 0x80) || (b2 & 0xC0) != 0x80 || (b3 & 0xC0) != 0x80;
+    }
+
+    private static boolean isMalformed3_2(int b1, int b2) {
+        return (b1 == (byte) 0xE0 && (b2 & 0xE0) == 0x80) || (b2 & 0xC0) != 0x80;
+    }
+
+    // leads past F4 are out of range, F0 can't be followed by 80..8F (overlong), and F4 only by 80..8F
+    private static boolean isMalformed4_2(int b1, int b2) {
+        b1 &= 0xFF;
+        b2 &= 0xFF;
+        return b1 > 0xF4 || (b1 == 0xF0 && (b2 < 0x90 || b2 > 0xBF)) || (b1 == 0xF4 && (b2 & 0xF0) != 0x80)
+            || isNotContinuation(b2);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,80 @@
+package org.jsoup.internal;
+
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+
+/**
+ Access from the parser to package-private parts of the nodes package, such as the nodes and attributes that hold values
+ to be materialised on first read (see {@link org.jsoup.parser.Parser#setLazyEntities(boolean)}). The nodes package
+ registers its implementation when initialised. Jsoup internal use only, please don't depend on this API.
+ */
+public abstract class NodeAccess {
+    private static volatile NodeAccess access;
+
+    /**
+     Create a TextNode with text that may be held as any CharSequence, and is materialised as a String when first read.
+     */
+    public abstract TextNode lazyTextNode(CharSequence text);
+
+    /**
+     Create a DataNode with data that may be held as any CharSequence, and is materialised as a String when first read.
+     */
+    public abstract DataNode lazyDataNode(CharSequence data);
+
+    /**
+     Add an attribute with a value that may be held as any CharSequence, and is materialised as a String when first
+     read. Will produce duplicates if the key already exists.
+     */
+    public abstract void addLazy(Attributes attributes, String key, CharSequence value);
+
+    /**
+     Get the text of a TextNode, without materialising it if held as a CharSequence.
+     */
+    public abstract CharSequence lazyText(TextNode node);
+
+    /**
+     Set the text of a TextNode, to a CharSequence that is materialised as a String when first read.
+     */
+    public abstract void lazyText(TextNode node, CharSequence text);
+
+    /**
+     Get the key for an internal attribute, which can't be set from HTML, and is hidden from output.
+     */
+    public abstract String internalKey(String key);
+
+    /**
+     Test if the element has its attributes allocated, without allocating them.
+     */
+    public abstract boolean hasAttributes(Element el);
+
+    /**
+     Get the nodes package's implementation.
+     */
+    public static NodeAccess get() {
+        NodeAccess found = access;
+        if (found == null) {
+            try {
+                Class.forName(Attributes.class.getName()); // initialising Attributes registers the implementation
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+            found = access;
+            Validate.notNull(found, "NodeAccess was not registered");
+        }
+        return found;
+    }
+
+    /**
+     Called by the nodes package to register its implementation. Only the first registration is kept.
+     */
+    public static void register(NodeAccess impl) {
+        Validate.notNull(impl);
+        synchronized (NodeAccess.class) {
+            if (access == null)
+                access = impl;
+        }
+    }
+}
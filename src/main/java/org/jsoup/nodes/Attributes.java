@@ -2,6 +2,7 @@ package org.jsoup.nodes;
 
 import org.jsoup.SerializationException;
 import org.jsoup.helper.Validate;
+import org.jsoup.internal.NodeAccess;
 import org.jsoup.internal.StringUtil;
 import org.jsoup.parser.ParseSettings;
 
@@ -41,12 +42,45 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
     // manages the key/val arrays
     private static final int GrowthFactor = 2;
     private static final String[] Empty = {};
+    private static final Object[] EmptyVals = {};
     static final int NotFound = -1;
     private static final String EmptyString = "";
 
     private int size = 0; // number of slots used (not capacity, which is keys.length
     String[] keys = Empty;
-    String[] vals = Empty;
+    Object[] vals = EmptyVals; // Strings, or CharSequences to be materialised on first access (see #addLazy)
+
+    static {
+        NodeAccess.register(new NodeAccess() { // the parser's access to package-private methods
+            @Override public TextNode lazyTextNode(CharSequence text) {
+                return TextNode.createLazy(text);
+            }
+
+            @Override public DataNode lazyDataNode(CharSequence data) {
+                return DataNode.createLazy(data);
+            }
+
+            @Override public void addLazy(Attributes attributes, String key, CharSequence value) {
+                attributes.addLazy(key, value);
+            }
+
+            @Override public CharSequence lazyText(TextNode node) {
+                return node.lazyCoreValue();
+            }
+
+            @Override public void lazyText(TextNode node, CharSequence text) {
+                node.lazyCoreValue(text);
+            }
+
+            @Override public String internalKey(String key) {
+                return Attributes.internalKey(key);
+            }
+
+            @Override public boolean hasAttributes(Element el) {
+                return el.hasAttributes();
+            }
+        });
+    }
 
     // check there's room for more
     private void checkCapacity(int minNewSize) {
@@ -81,6 +115,16 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         return NotFound;
     }
 
+    // gets the value at the index as a String; a lazy value is materialised and replaced on first access
+    private String val(int i) {
+        final Object val = vals[i];
+        if (val == null || val instanceof String)
+            return (String) val;
+        final String str = val.toString();
+        vals[i] = str;
+        return str;
+    }
+
     // we track boolean attributes as null in values - they're just keys. so returns empty for consumers
     static String checkNotNull(String val) {
         return val == null ? EmptyString : val;
@@ -94,7 +138,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public String get(String key) {
         int i = indexOfKey(key);
-        return i == NotFound ? EmptyString : checkNotNull(vals[i]);
+        return i == NotFound ? EmptyString : checkNotNull(val(i));
     }
 
     /**
@@ -104,7 +148,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public String getIgnoreCase(String key) {
         int i = indexOfKeyIgnoreCase(key);
-        return i == NotFound ? EmptyString : checkNotNull(vals[i]);
+        return i == NotFound ? EmptyString : checkNotNull(val(i));
     }
 
     /**
@@ -112,11 +156,23 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      * @see Attributes#put(String, String)
      */
     public Attributes add(String key, String value) {
+        addObject(key, value);
+        return this;
+    }
+
+    /**
+     Adds a new attribute, with a value that may be held as any CharSequence (such as a value with undecoded entities),
+     and is materialised as a String when first read. Will produce duplicates if the key already exists.
+     */
+    void addLazy(String key, CharSequence value) {
+        addObject(key, value);
+    }
+
+    private void addObject(String key, Object value) {
         checkCapacity(size + 1);
         keys[size] = key;
         vals[size] = value;
         size++;
-        return this;
     }
 
     /**
@@ -297,7 +353,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
 
             @Override
             public Attribute next() {
-                final Attribute attr = new Attribute(keys[i], vals[i], Attributes.this);
+                final Attribute attr = new Attribute(keys[i], val(i), Attributes.this);
                 i++;
                 return attr;
             }
@@ -318,7 +374,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         for (int i = 0; i < size; i++) {
             if (isInternalKey(keys[i]))
                 continue; // skip internal keys
-            Attribute attr = new Attribute(keys[i], vals[i], Attributes.this);
+            Attribute attr = new Attribute(keys[i], val(i), Attributes.this);
             list.add(attr);
         }
         return Collections.unmodifiableList(list);
@@ -355,7 +411,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
 
             // inlined from Attribute.html()
             final String key = keys[i];
-            final String val = vals[i];
+            final String val = val(i);
             accum.append(' ').append(key);
 
             // collapse checked=null, checked="", checked=checked; write out others
@@ -385,6 +441,8 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         Attributes that = (Attributes) o;
 
         if (size != that.size) return false;
+        materialise();
+        that.materialise();
         if (!Arrays.equals(keys, that.keys)) return false;
         return Arrays.equals(vals, that.vals);
     }
@@ -395,12 +453,18 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     @Override
     public int hashCode() {
+        materialise();
         int result = size;
         result = 31 * result + Arrays.hashCode(keys);
         result = 31 * result + Arrays.hashCode(vals);
         return result;
     }
 
+    private void materialise() {
+        for (int i = 0; i < size; i++)
+            val(i);
+    }
+
     @Override
     public Attributes clone() {
         Attributes clone;
@@ -20,6 +20,16 @@ public class DataNode extends LeafNode {
         return "#data";
     }
 
+    /**
+     Create a new DataNode with data that may be held as any CharSequence (such as data with undecoded entities), and
+     is materialised as a String when first read. Used by the parser, via {@link org.jsoup.internal.NodeAccess}.
+     */
+    static DataNode createLazy(CharSequence data) {
+        DataNode node = new DataNode("");
+        node.value = data;
+        return node;
+    }
+
     /**
      Get the data contents of this node. Will be unescaped and with original new lines, space etc.
      @return data
@@ -11,7 +11,6 @@ import org.jsoup.select.Evaluator;
 import org.jsoup.select.NodeFilter;
 import org.jsoup.select.NodeTraversor;
 import org.jsoup.select.NodeVisitor;
-import org.jsoup.select.QueryParser;
 import org.jsoup.select.Selector;
 
 import java.io.IOException;
@@ -20,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +42,8 @@ public class Element extends Node {
     private static final Pattern classSplit = Pattern.compile("\\s+");
     private static final String baseUriKey = Attributes.internalKey("baseUri");
     private Tag tag;
-    private WeakReference<List<Element>> shadowChildrenRef; // points to child elements shadowed from node children
+    private WeakReference<ChildElements> shadowChildrenRef; // points to child elements shadowed from node children
+    private int siblingElementIndex; // index in the parent's child elements, set when that list is built; verify on use
     List<Node> childNodes;
     private Attributes attributes;
 
@@ -162,6 +163,9 @@ public class Element extends Node {
     public Element tagName(String tagName) {
         Validate.notEmpty(tagName, "Tag name must not be empty.");
         tag = Tag.valueOf(tagName, NodeUtils.parser(this).settings()); // maintains the case option of the original parse
+        Element parent = parent();
+        if (parent != null)
+            parent.nodelistChanged(); // the of-type positions among the siblings have changed
         return this;
     }
 
@@ -306,22 +310,67 @@ public class Element extends Node {
      * TODO - think about pulling this out as a helper as there are other shadow lists (like in Attributes) kept around.
      * @return a list of child elements
      */
-    private List<Element> childElementsList() {
-        List<Element> children;
+    private ChildElements childElementsList() {
+        ChildElements children;
         if (shadowChildrenRef == null || (children = shadowChildrenRef.get()) == null) {
             final int size = childNodes.size();
-            children = new ArrayList<>(size);
+            children = new ChildElements(size);
             //noinspection ForLoopReplaceableByForEach (beacause it allocates an Iterator which is wasteful here)
             for (int i = 0; i < size; i++) {
                 final Node node = childNodes.get(i);
-                if (node instanceof Element)
-                    children.add((Element) node);
+                if (node instanceof Element) {
+                    final Element el = (Element) node;
+                    el.siblingElementIndex = children.size();
+                    children.add(el);
+                }
             }
             shadowChildrenRef = new WeakReference<>(children);
         }
         return children;
     }
 
+    /**
+     * The shadow list of child elements, with the positions of each among the children of the same tag (for the
+     * :nth-of-type selectors), computed when first needed. Replaced when the child nodes change.
+     */
+    @SuppressWarnings("serial")
+    private static final class ChildElements extends ArrayList<Element> {
+        private TypePositions typePositions;
+
+        ChildElements(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        TypePositions typePositions() {
+            TypePositions positions = typePositions;
+            if (positions == null) {
+                positions = new TypePositions(this);
+                typePositions = positions;
+            }
+            return positions;
+        }
+    }
+
+    private static final class TypePositions {
+        final int[] index; // of each child, among the children of its tag
+        final int[] count; // of the children with each child's tag
+
+        TypePositions(List<Element> children) {
+            final int size = children.size();
+            index = new int[size];
+            count = new int[size];
+            final Map<Tag, Integer> counts = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                final Tag tag = children.get(i).tag;
+                final Integer seen = counts.get(tag);
+                index[i] = seen != null ? seen : 0;
+                counts.put(tag, index[i] + 1);
+            }
+            for (int i = 0; i < size; i++)
+                count[i] = counts.get(children.get(i).tag);
+        }
+    }
+
     /**
      * Clears the cached shadow child elements.
      */
@@ -389,7 +438,7 @@ public class Element extends Node {
      * @param cssQuery a {@link Selector} CSS-like query
      * @return an {@link Elements} list containing elements that match the query (empty if none match)
      * @see Selector selector query syntax
-     * @see QueryParser#parse(String)
+     * @see Selector#compile(String)
      * @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
      */
     public Elements select(String cssQuery) {
@@ -440,7 +489,7 @@ public class Element extends Node {
      * @return if this element matches the query
      */
     public boolean is(String cssQuery) {
-        return is(QueryParser.parse(cssQuery));
+        return is(Selector.compile(cssQuery));
     }
 
     /**
@@ -460,7 +509,7 @@ public class Element extends Node {
      * found.
      */
     public Element closest(String cssQuery) {
-        return closest(QueryParser.parse(cssQuery));
+        return closest(Selector.compile(cssQuery));
     }
 
     /**
@@ -771,7 +820,7 @@ public class Element extends Node {
     public Element nextElementSibling() {
         if (parentNode == null) return null;
         List<Element> siblings = parent().childElementsList();
-        int index = indexInList(this, siblings);
+        int index = indexIn(siblings);
         if (siblings.size() > index+1)
             return siblings.get(index+1);
         else
@@ -795,7 +844,7 @@ public class Element extends Node {
     public Element previousElementSibling() {
         if (parentNode == null) return null;
         List<Element> siblings = parent().childElementsList();
-        int index = indexInList(this, siblings);
+        int index = indexIn(siblings);
         if (index > 0)
             return siblings.get(index-1);
         else
@@ -836,7 +885,36 @@ public class Element extends Node {
      */
     public int elementSiblingIndex() {
        if (parent() == null) return 0;
-       return indexInList(this, parent().childElementsList());
+       return indexIn(parent().childElementsList());
+    }
+
+    /**
+     * Get the list index of this element among its element siblings that have the same tag. I.e. if this is the first
+     * {@code p} element sibling, returns 0. (As used by the {@code :nth-of-type} selector.)
+     * @return position among the element siblings of the same tag
+     */
+    public int elementSiblingIndexOfType() {
+        if (parent() == null) return 0;
+        final ChildElements siblings = parent().childElementsList();
+        return siblings.typePositions().index[indexIn(siblings)];
+    }
+
+    /**
+     * Get the number of element siblings that have the same tag as this element, including this element.
+     * @return the count of element siblings of the same tag; 1 if there are no others
+     */
+    public int elementSiblingCountOfType() {
+        if (parent() == null) return 1;
+        final ChildElements siblings = parent().childElementsList();
+        return siblings.typePositions().count[indexIn(siblings)];
+    }
+
+    // the sibling index is kept from when the parent's child list was built, so is checked against the current list
+    private int indexIn(List<Element> siblings) {
+        final int index = siblingElementIndex;
+        if (index < siblings.size() && siblings.get(index) == this)
+            return index;
+        return indexInList(this, siblings);
     }
 
     /**
@@ -113,6 +113,51 @@ public class Entities {
         return emptyName;
     }
 
+    /**
+     * Internal method. Steps through the trie of named references by one char of a reference's name, so that the name can
+     * be matched as it is scanned, in one pass and without creating a String. Start from node {@code 0} (the empty
+     * name), and stop once {@code -1} is returned.
+     *
+     * @param node the current node, for the name so far
+     * @param c the next char of the name
+     * @return the node for the name extended by the char, or -1 if no named reference starts with that name
+     */
+    public static int namedReferenceStep(final int node, final char c) {
+        return NameTrie.step(node, c);
+    }
+
+    /**
+     * Internal method. Tests if a node from {@link #namedReferenceStep(int, char)} is a complete named reference.
+     *
+     * @param node the node (or -1)
+     * @param baseOnly if the reference must be in the base set (which may be used without a trailing {@code ;})
+     * @return true if the node's name is a named reference (in the base set, if required)
+     */
+    public static boolean isNamedReference(final int node, final boolean baseOnly) {
+        if (node < 0)
+            return false;
+        final byte kind = NameTrie.kinds[node];
+        return baseOnly ? kind == NameTrie.Base : kind != NameTrie.None;
+    }
+
+    /**
+     * Internal method. Gets the character(s) of a named reference node, found with {@link #namedReferenceStep(int, char)}.
+     *
+     * @param node the node of a complete named reference
+     * @param codepoints an array of at least two, to hold the codepoints
+     * @return the number of codepoints (1 or 2); or 0 if the node is not a named reference
+     */
+    public static int codepointsForNamedReference(final int node, final int[] codepoints) {
+        if (!isNamedReference(node, false))
+            return 0;
+        codepoints[0] = NameTrie.codepoints[node];
+        final int second = NameTrie.secondCodepoints[node];
+        if (second == empty)
+            return 1;
+        codepoints[1] = second;
+        return 2;
+    }
+
     public static int codepointsForName(final String name, final int[] codepoints) {
         String val = multipoints.get(name);
         if (val != null) {
@@ -300,6 +345,102 @@ public class Entities {
         }
     }
 
+    /**
+     * A trie of the extended named references, built from the sorted names. Nodes are laid out breadth first, so that a
+     * node's children are contiguous, and in char order; the root's children are also indexed by char.
+     */
+    private static final class NameTrie {
+        static final byte None = 0, Extended = 1, Base = 2;
+        static final char[] chars; // the char from the parent to each node
+        static final int[] firstChild;
+        static final byte[] childCount;
+        static final byte[] kinds;
+        static final int[] codepoints;
+        static final int[] secondCodepoints;
+        static final int[] rootChildren = new int[128]; // by char; 0 if none (as the root is never a child)
+
+        static {
+            final String[] names = extended.nameKeys;
+            final int[] points = extended.codeVals;
+
+            // each node covers the range of names with its prefix. children are added by grouping the range's names by
+            // their next char, which are contiguous as the names are sorted
+            int capacity = 8192;
+            char[] nodeChars = new char[capacity];
+            int[] lo = new int[capacity], hi = new int[capacity], depth = new int[capacity];
+            int[] first = new int[capacity];
+            byte[] count = new byte[capacity];
+            hi[0] = names.length;
+            int size = 1;
+            for (int node = 0; node < size; node++) {
+                first[node] = size;
+                final int d = depth[node];
+                int i = lo[node];
+                if (names[i].length() == d)
+                    i++; // the node's own name, which sorts first
+                while (i < hi[node]) {
+                    final char c = names[i].charAt(d);
+                    int j = i + 1;
+                    while (j < hi[node] && names[j].charAt(d) == c)
+                        j++;
+                    if (size == capacity) {
+                        capacity *= 2;
+                        nodeChars = Arrays.copyOf(nodeChars, capacity);
+                        lo = Arrays.copyOf(lo, capacity);
+                        hi = Arrays.copyOf(hi, capacity);
+                        depth = Arrays.copyOf(depth, capacity);
+                        first = Arrays.copyOf(first, capacity);
+                        count = Arrays.copyOf(count, capacity);
+                    }
+                    nodeChars[size] = c;
+                    lo[size] = i;
+                    hi[size] = j;
+                    depth[size] = d + 1;
+                    size++;
+                    count[node]++;
+                    i = j;
+                }
+            }
+
+            chars = Arrays.copyOf(nodeChars, size);
+            firstChild = Arrays.copyOf(first, size);
+            childCount = Arrays.copyOf(count, size);
+            kinds = new byte[size];
+            codepoints = new int[size];
+            secondCodepoints = new int[size];
+            Arrays.fill(secondCodepoints, empty);
+            for (int node = 1; node < size; node++) {
+                final String name = names[lo[node]];
+                if (name.length() != depth[node])
+                    continue; // a prefix only
+                kinds[node] = base.codepointForName(name) != empty ? Base : Extended;
+                codepoints[node] = points[lo[node]];
+                final String multi = multipoints.get(name);
+                if (multi != null) {
+                    codepoints[node] = multi.codePointAt(0);
+                    secondCodepoints[node] = multi.codePointAt(1);
+                }
+            }
+            for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++)
+                rootChildren[chars[child]] = child;
+        }
+
+        static int step(final int node, final char c) {
+            if (node == 0)
+                return c < 128 && rootChildren[c] != 0 ? rootChildren[c] : -1;
+            final int from = firstChild[node];
+            final int to = from + childCount[node];
+            for (int i = from; i < to; i++) {
+                final char next = chars[i];
+                if (next == c)
+                    return i;
+                if (next > c)
+                    break;
+            }
+            return -1;
+        }
+    }
+
     private static void load(EscapeMode e, String pointsData, int size) {
         e.nameKeys = new String[size];
         e.codeVals = new int[size];
@@ -8,7 +8,8 @@ import java.util.List;
 abstract class LeafNode extends Node {
     private static final List<Node> EmptyNodes = Collections.emptyList();
 
-    Object value; // either a string value, or an attribute map (in the rare case multiple attributes are set)
+    Object value; // either a string value, or an attribute map (in the rare case multiple attributes are set). May be
+    // a CharSequence with undecoded entities, decoded as a String on first access (see Parser#setLazyEntities)
 
     protected final boolean hasAttributes() {
         return value instanceof Attributes;
@@ -26,7 +27,7 @@ abstract class LeafNode extends Node {
             Attributes attributes = new Attributes();
             value = attributes;
             if (coreValue != null)
-                attributes.put(nodeName(), (String) coreValue);
+                attributes.addLazy(nodeName(), (CharSequence) coreValue);
         }
     }
 
@@ -42,11 +43,31 @@ abstract class LeafNode extends Node {
     public String attr(String key) {
         Validate.notNull(key);
         if (!hasAttributes()) {
-            return key.equals(nodeName()) ? (String) value : EmptyString;
+            return key.equals(nodeName()) ? coreString() : EmptyString;
         }
         return super.attr(key);
     }
 
+    // the core value, without materialising it if held as a CharSequence
+    CharSequence lazyCoreValue() {
+        return hasAttributes() ? coreValue() : (CharSequence) value;
+    }
+
+    void lazyCoreValue(CharSequence value) {
+        if (hasAttributes())
+            coreValue(value.toString());
+        else
+            this.value = value;
+    }
+
+    private String coreString() {
+        if (value == null || value instanceof String)
+            return (String) value;
+        final String str = value.toString();
+        value = str;
+        return str;
+    }
+
     @Override
     public Node attr(String key, String value) {
         if (!hasAttributes() && key.equals(nodeName())) {
@@ -112,6 +112,16 @@ public class TextNode extends LeafNode {
         return new TextNode(text);
     }
 
+    /**
+     * Create a new TextNode with text that may be held as any CharSequence (such as text with undecoded entities), and
+     * is materialised as a String when first read. Used by the parser, via {@link org.jsoup.internal.NodeAccess}.
+     */
+    static TextNode createLazy(CharSequence text) {
+        TextNode node = new TextNode("");
+        node.value = text;
+        return node;
+    }
+
     static String normaliseWhitespace(String text) {
         text = StringUtil.normaliseWhitespace(text);
         return text;
@@ -0,0 +1,26 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Document;
+
+/**
+ A callback interface to receive the results of a batch parse, via {@link ParserPool#parseFiles} or {@link
+ ParserPool#parseStreams}. Each source is reported once, to either {@link #document} or {@link #failure}.
+ <p>The callbacks are made from the executor's worker threads, so may be called concurrently, and in any order.</p>
+ @param <T> the type of the parse sources (e.g. {@link java.io.File})
+ */
+public interface BatchHandler<T> {
+    /**
+     Called when a source has been parsed.
+     @param source the source that was parsed
+     @param doc the parsed Document
+     */
+    void document(T source, Document doc);
+
+    /**
+     Called when a source could not be parsed. The batch continues with the other sources.
+     @param source the source that failed
+     @param e the failure; an {@link java.io.IOException} if the source could not be read, or a runtime exception
+     (e.g. a {@link ParseLimitException}) from the parse
+     */
+    void failure(T source, Exception e);
+}
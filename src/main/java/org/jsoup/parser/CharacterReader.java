@@ -2,6 +2,7 @@ package org.jsoup.parser;
 
 import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Entities;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -26,12 +27,13 @@ public final class CharacterReader {
     private int bufPos;
     private int readerPos;
     private int bufMark = -1;
+    private int maxInputChars = Integer.MAX_VALUE; // see ParseLimits
+    private boolean failOnMaxInput;
     private static final int stringCacheSize = 512;
     private String[] stringCache = new String[stringCacheSize]; // holds reused strings in this doc, to lessen garbage
 
     public CharacterReader(Reader input, int sz) {
         Validate.notNull(input);
-        Validate.isTrue(input.markSupported());
         reader = input;
         charBuf = new char[sz > maxBufferLen ? maxBufferLen : sz];
         bufferUp();
@@ -46,6 +48,16 @@ public final class CharacterReader {
     }
 
     public void close() {
+        closeInput();
+        charBuf = null;
+        stringCache = null;
+    }
+
+    /**
+     Closes the input reader, but retains the char buffer and string cache, so that this CharacterReader can be {@link
+     #reset(Reader) reset} for another input.
+     */
+    void closeInput() {
         if (reader == null)
             return;
         try {
@@ -53,11 +65,52 @@ public final class CharacterReader {
         } catch (IOException ignored) {
         } finally {
             reader = null;
-            charBuf = null;
-            stringCache = null;
         }
     }
 
+    /**
+     Re-initialise this CharacterReader to read from a new input, reusing its buffers. Used when a {@link TreeBuilder}
+     recycles its parse state (see {@link ParserPool}).
+     @param input the new input
+     */
+    void reset(Reader input) {
+        Validate.notNull(input);
+        Validate.notNull(charBuf, "Can not reset a closed CharacterReader");
+        reader = input;
+        bufLength = 0;
+        bufSplitPoint = 0;
+        bufPos = 0;
+        readerPos = 0;
+        bufMark = -1;
+        readFully = false;
+        maxInputChars = Integer.MAX_VALUE;
+        failOnMaxInput = false;
+        bufferUp();
+    }
+
+    /**
+     Limit the number of chars read from the input. Past the limit, the input is treated as ending, or if failing, a
+     {@link ParseLimitException} is thrown.
+     @param max the maximum number of chars to read
+     @param fail true to throw, false to truncate
+     */
+    void limitInput(int max, boolean fail) {
+        maxInputChars = max;
+        failOnMaxInput = fail;
+        checkInputLimit();
+    }
+
+    private void checkInputLimit() {
+        if (readerPos + bufLength <= maxInputChars)
+            return;
+        if (failOnMaxInput)
+            throw new ParseLimitException("Input exceeded the maximum of " + maxInputChars + " chars");
+        bufLength = Math.max(0, maxInputChars - readerPos);
+        bufPos = Math.min(bufPos, bufLength);
+        bufSplitPoint = Math.min(bufSplitPoint, bufLength);
+        readFully = true;
+    }
+
     private boolean readFully; // if the underlying stream has been completely read, no value in further buffering
     private void bufferUp() {
         if (readFully || bufPos < bufSplitPoint)
@@ -74,10 +127,20 @@ public final class CharacterReader {
         }
 
         try {
-            final long skipped = reader.skip(pos);
-            reader.mark(maxBufferLen);
-            int read = 0;
-            while (read <= minReadAheadLen) {
+            final long skipped;
+            int kept = 0;
+            if (reader.markSupported()) {
+                skipped = reader.skip(pos);
+                reader.mark(maxBufferLen);
+            } else {
+                // the reader can't be re-read from a mark (e.g. it decodes straight from bytes; see DataUtil), so move
+                // the unconsumed tail of the buffer to its start, and read in after that
+                skipped = pos;
+                kept = bufLength - pos;
+                System.arraycopy(charBuf, pos, charBuf, 0, kept);
+            }
+            int read = kept;
+            while (read <= minReadAheadLen || read == kept) {
                 int thisRead = reader.read(charBuf, read, charBuf.length - read);
                 if (thisRead == -1)
                     readFully = true;
@@ -85,7 +148,8 @@ public final class CharacterReader {
                     break;
                 read += thisRead;
             }
-            reader.reset();
+            if (reader.markSupported())
+                reader.reset();
             if (read > 0) {
                 Validate.isTrue(skipped == pos); // Previously asserted that there is room in buf to skip, so this will be a WTF
                 bufLength = read;
@@ -94,12 +158,43 @@ public final class CharacterReader {
                 if (bufMark != -1)
                     bufMark = 0;
                 bufSplitPoint = bufLength > readAheadLimit ? readAheadLimit : bufLength;
+                if (maxInputChars != Integer.MAX_VALUE)
+                    checkInputLimit();
+            } else if (!readFully && charBuf.length > 0) {
+                // a non-blocking reader (see PushParser) has no more input ready yet. The reader has been marked at the
+                // new position, so rebase the buffer to that, and if there is nothing left to consume, signal it (not EOF)
+                final int keep = Math.max(0, bufLength - pos);
+                System.arraycopy(charBuf, pos, charBuf, 0, keep);
+                bufLength = keep;
+                readerPos += pos;
+                bufPos = offset;
+                if (bufMark != -1)
+                    bufMark = 0;
+                bufSplitPoint = 0; // retry on next access
+                if (bufPos >= bufLength)
+                    throw InputPending.Instance;
             }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     Thrown when a non-blocking reader has no more input available yet, but has not reached EOF. The tokeniser is left
+     in a state where it can be resumed once more input is available.
+     */
+    @SuppressWarnings("serial")
+    static final class InputPending extends RuntimeException {
+        static final InputPending Instance = new InputPending();
+
+        private InputPending() {}
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this; // thrown for flow control only; skip the cost of the trace
+        }
+    }
+
     /**
      * Gets the current cursor position in the content.
      * @return current position
@@ -261,6 +356,25 @@ public final class CharacterReader {
         final int charLen = chars.length;
         int i;
 
+        // for ASCII delimiters (the usual case), test each char against a 128 bit set, vs each delimiter in turn
+        long low = 0, high = 0;
+        for (i = 0; i < charLen; i++) {
+            final char c = chars[i];
+            if (c < 64) low |= 1L << c;
+            else if (c < 128) high |= 1L << c; // shift is mod 64
+            else break;
+        }
+        if (i == charLen) {
+            while (pos < remaining) {
+                final char c = val[pos];
+                if (c < 64 ? (low & 1L << c) != 0 : c < 128 && (high & 1L << c) != 0)
+                    break;
+                pos++;
+            }
+            bufPos = pos;
+            return pos > start ? cacheString(charBuf, stringCache, start, pos -start) : "";
+        }
+
         OUTER: while (pos < remaining) {
             for (i = 0; i < charLen; i++) {
                 if (val[pos] == chars[i])
@@ -292,99 +406,120 @@ public final class CharacterReader {
     String consumeData() {
         // &, <, null
         //bufferUp(); // no need to bufferUp, just called consume()
-        int pos = bufPos;
-        final int start = pos;
-        final int remaining = bufLength;
-        final char[] val = charBuf;
-
-        OUTER: while (pos < remaining) {
-            switch (val[pos]) {
-                case '&':
-                case '<':
-                case TokeniserState.nullChar:
-                    break OUTER;
-                default:
-                    pos++;
-            }
-        }
-        bufPos = pos;
-        return pos > start ? cacheString(charBuf, stringCache, start, pos -start) : "";
+        return consumeToClass(DataStop);
     }
 
     String consumeAttributeQuoted(final boolean single) {
         // null, " or ', &
         //bufferUp(); // no need to bufferUp, just called consume()
-        int pos = bufPos;
-        final int start = pos;
-        final int remaining = bufLength;
-        final char[] val = charBuf;
-
-        OUTER: while (pos < remaining) {
-            switch (val[pos]) {
-                case '&':
-                case TokeniserState.nullChar:
-                    break OUTER;
-                case '\'':
-                    if (single) break OUTER;
-                case '"':
-                    if (!single) break OUTER;;
-                default:
-                    pos++;
-            }
-        }
-        bufPos = pos;
-        return pos > start ? cacheString(charBuf, stringCache, start, pos -start) : "";
+        return consumeToClass(single ? SingleQuotedStop : DoubleQuotedStop);
     }
 
-
     String consumeRawData() {
         // <, null
         //bufferUp(); // no need to bufferUp, just called consume()
-        int pos = bufPos;
-        final int start = pos;
-        final int remaining = bufLength;
-        final char[] val = charBuf;
+        return consumeToClass(RawDataStop);
+    }
 
-        OUTER: while (pos < remaining) {
-            switch (val[pos]) {
-                case '<':
-                case TokeniserState.nullChar:
-                    break OUTER;
-                default:
-                    pos++;
-            }
-        }
-        bufPos = pos;
-        return pos > start ? cacheString(charBuf, stringCache, start, pos -start) : "";
+    /**
+     Advances past data, as {@link #consumeData()} would consume it, without creating the sequence.
+     */
+    void skipData() {
+        bufPos = scanToClass(charBuf, bufPos, bufLength, DataStop);
+    }
+
+    /**
+     Advances past raw data, as {@link #consumeRawData()} would consume it, without creating the sequence.
+     */
+    void skipRawData() {
+        bufPos = scanToClass(charBuf, bufPos, bufLength, RawDataStop);
     }
 
     String consumeTagName() {
         // '\t', '\n', '\r', '\f', ' ', '/', '>', nullChar
         // NOTE: out of spec, added '<' to fix common author bugs
         bufferUp();
-        int pos = bufPos;
-        final int start = pos;
-        final int remaining = bufLength;
-        final char[] val = charBuf;
+        final int start = bufPos;
+        final int pos = scanToClass(charBuf, start, bufLength, TagNameStop);
+        bufPos = pos;
+        final Tag known = Tag.knownTag(charBuf, start, pos - start); // resolved from the buffer, case insensitively
+        if (known != null && rangeEquals(start, pos - start, known.getName()))
+            return known.getName();
+        return pos > start ? NameTable.intern(charBuf, start, pos - start) : "";
+    }
 
-        OUTER: while (pos < remaining) {
-            switch (val[pos]) {
-                case '\t':
-                case '\n':
-                case '\r':
-                case '\f':
-                case ' ':
-                case '/':
-                case '>':
-                case '<':
-                case TokeniserState.nullChar:
-                    break OUTER;
+    String consumeAttributeName() {
+        // nullChar, '\t', '\n', '\f', '\r', ' ', '"', '\'', '/', '<', '=', '>'
+        bufferUp();
+        return consumeNameToClass(AttributeNameStop);
+    }
+
+    /*
+     The scanning consume methods stop on small sets of ASCII delimiters. Each char < 128 has a class byte, with a bit
+     set for each set that it is in. Scanning tests four chars per step, by OR-ing their classes (looked up with the
+     char masked to 7 bits, so that there is no range branch) and testing the set's bit. A non-ASCII char may alias to
+     a delimiter's class there, so a hit is confirmed char by char. Text runs mostly contain no delimiters, so most steps
+     are a single test.
+     */
+    private static final byte DataStop = 1, RawDataStop = 2, TagNameStop = 4, DoubleQuotedStop = 8, SingleQuotedStop = 16,
+        AttributeNameStop = 32;
+    private static final byte[] charClasses = new byte[128];
+    static {
+        charClasses['&'] = DataStop | DoubleQuotedStop | SingleQuotedStop;
+        charClasses['<'] = DataStop | RawDataStop | TagNameStop | AttributeNameStop;
+        charClasses[TokeniserState.nullChar] = DataStop | RawDataStop | TagNameStop | DoubleQuotedStop | SingleQuotedStop
+            | AttributeNameStop;
+        charClasses['"'] = DoubleQuotedStop | AttributeNameStop;
+        charClasses['\''] = SingleQuotedStop | AttributeNameStop;
+        charClasses['\t'] = charClasses['\n'] = charClasses['\r'] = charClasses['\f'] = charClasses[' '] =
+            TagNameStop | AttributeNameStop;
+        charClasses['/'] = charClasses['>'] = TagNameStop | AttributeNameStop;
+        charClasses['='] = AttributeNameStop;
+    }
+
+    private String consumeToClass(final int stop) {
+        final int start = bufPos;
+        final int pos = scanToClass(charBuf, start, bufLength, stop);
+        bufPos = pos;
+        return pos > start ? cacheString(charBuf, stringCache, start, pos - start) : "";
+    }
+
+    // tag and attribute names are interned in the shared NameTable, vs this reader's string cache
+    private String consumeNameToClass(final int stop) {
+        final int start = bufPos;
+        final int pos = scanToClass(charBuf, start, bufLength, stop);
+        bufPos = pos;
+        return pos > start ? NameTable.intern(charBuf, start, pos - start) : "";
+    }
+
+    /**
+     Finds the first char in val[pos, end) that is in the stop class.
+     @return the index of the stop char, or end if none
+     */
+    static int scanToClass(final char[] val, int pos, final int end, final int stop) {
+        final byte[] classes = charClasses;
+        final int wordEnd = end - 3;
+        while (pos < wordEnd) {
+            if (((classes[val[pos] & 0x7F] | classes[val[pos + 1] & 0x7F] | classes[val[pos + 2] & 0x7F]
+                | classes[val[pos + 3] & 0x7F]) & stop) != 0) {
+                final int found = scanToClassExact(val, pos, pos + 4, stop);
+                if (found < pos + 4)
+                    return found;
             }
-            pos++;
+            pos += 4;
         }
+        return scanToClassExact(val, pos, end, stop);
+    }
 
-        bufPos = pos;
-        return pos > start ? cacheString(charBuf, stringCache, start, pos -start) : "";
+    private static int scanToClassExact(final char[] val, int pos, final int end, final int stop) {
+        final byte[] classes = charClasses;
+        while (pos < end) {
+            final char c = val[pos];
+            if (c < 128 && (classes[c] & stop) != 0)
+                break;
+            pos++;
+        }
+        return pos;
     }
 
     String consumeToEnd() {
@@ -429,6 +564,41 @@ public final class CharacterReader {
         return cacheString(charBuf, stringCache, start, bufPos - start);
     }
 
+    /**
+     Consumes the name of a named character reference (a run of letters, then digits, as in {@link
+     #consumeLetterThenDigitSequence()}), matching it against the named references as it is scanned, in one pass over
+     the buffer and without creating a String.
+     @return the reference's node in the named reference trie (see {@link Entities#namedReferenceStep(int, char)}), or -1
+     if the name is not a named reference
+     */
+    int consumeNamedReference() {
+        bufferUp();
+        final char[] val = charBuf;
+        final int end = bufLength;
+        int pos = bufPos;
+        int node = pos < end ? 0 : -1;
+        while (pos < end) {
+            final char c = val[pos];
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || Character.isLetter(c)) {
+                if (node != -1)
+                    node = Entities.namedReferenceStep(node, c);
+                pos++;
+            } else
+                break;
+        }
+        while (pos < end) {
+            final char c = val[pos];
+            if (c >= '0' && c <= '9') {
+                if (node != -1)
+                    node = Entities.namedReferenceStep(node, c);
+                pos++;
+            } else
+                break;
+        }
+        bufPos = pos;
+        return node;
+    }
+
     String consumeHexSequence() {
         bufferUp();
         int start = bufPos;
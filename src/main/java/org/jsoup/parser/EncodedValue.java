@@ -0,0 +1,75 @@
+package org.jsoup.parser;
+
+import org.jsoup.internal.StringUtil;
+
+/**
+ A text or attribute value that was read with its character references left undecoded (see {@link
+ Parser#setLazyEntities(boolean)}). It is decoded when first accessed, and nodes replace it with the decoded String. The
+ parser tests values with the static methods here, which only decode them if the raw form can't give the answer.
+ */
+final class EncodedValue implements CharSequence {
+    private final String raw;
+    private final boolean inAttribute;
+    private String decoded;
+
+    EncodedValue(String raw, boolean inAttribute) {
+        this.raw = raw;
+        this.inAttribute = inAttribute;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (decoded == null)
+            decoded = Parser.unescapeEntities(raw, inAttribute);
+        return decoded;
+    }
+
+    boolean isDecoded() {
+        return decoded != null;
+    }
+
+    /**
+     Tests if the value is longer than the max. A decoded value is never longer than its raw form (each reference decodes
+     to fewer chars than it is written with), so an encoded value is only decoded if its raw form is longer.
+     */
+    static boolean isLongerThan(CharSequence value, int max) {
+        if (value instanceof EncodedValue && ((EncodedValue) value).raw.length() <= max)
+            return false;
+        return value.length() > max;
+    }
+
+    /**
+     Tests if the value is blank. The raw form up to its first reference is the same as decoded, so an encoded value is
+     only decoded if that is blank, as the reference could decode to whitespace (e.g. {@code &#32;}).
+     */
+    static boolean isBlank(CharSequence value) {
+        if (value instanceof MergedText)
+            return ((MergedText) value).isBlank();
+        if (value instanceof EncodedValue) {
+            final String raw = ((EncodedValue) value).raw;
+            for (int i = 0; i < raw.length(); i++) {
+                final char c = raw.charAt(i);
+                if (c == '&')
+                    break;
+                if (!StringUtil.isWhitespace(c))
+                    return false;
+            }
+        }
+        return value == null || StringUtil.isBlank(value.toString());
+    }
+}
@@ -1,10 +1,10 @@
 package org.jsoup.parser;
 
 import org.jsoup.helper.Validate;
+import org.jsoup.internal.NodeAccess;
 import org.jsoup.internal.StringUtil;
 import org.jsoup.nodes.CDataNode;
 import org.jsoup.nodes.Comment;
-import org.jsoup.nodes.DataNode;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.FormElement;
@@ -15,7 +15,10 @@ import org.jsoup.select.Elements;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.jsoup.internal.StringUtil.inSorted;
 
@@ -39,6 +42,57 @@ public class HtmlTreeBuilder extends TreeBuilder {
         "section", "select", "style", "summary", "table", "tbody", "td", "textarea", "tfoot", "th", "thead",
         "title", "tr", "ul", "wbr", "xmp"};
 
+    /*
+     Tree building categories of tags, as bits, so that the stack can be tested by bit tests rather than name searches.
+     A Tag's categories are resolved (by its normal name, from the search arrays) when first tested, and kept on the Tag.
+     */
+    static final int ScopeBoundary = 1, ListScopeBoundary = 1 << 1, ButtonScopeBoundary = 1 << 2,
+        TableScopeBoundary = 1 << 3, SelectScopeMember = 1 << 4, ImpliedEndTag = 1 << 5, Special = 1 << 6,
+        LiBreaker = 1 << 7, Heading = 1 << 8, DdDt = 1 << 9, TableFoster = 1 << 10, TableBodyContext = 1 << 11,
+        TableRowContext = 1 << 12;
+    private static final int CategoriesResolved = 1 << 30;
+    private static final Map<String, Integer> categories = new HashMap<>();
+
+    static {
+        addCategory(TagsSearchInScope, ScopeBoundary);
+        addCategory(TagSearchList, ListScopeBoundary);
+        addCategory(TagSearchButton, ButtonScopeBoundary);
+        addCategory(TagSearchTableScope, TableScopeBoundary);
+        addCategory(TagSearchSelectScope, SelectScopeMember);
+        addCategory(TagSearchEndTags, ImpliedEndTag);
+        addCategory(TagSearchSpecial, Special);
+        addCategory(HtmlTreeBuilderState.Constants.InBodyStartLiBreakers, LiBreaker);
+        addCategory(HtmlTreeBuilderState.Constants.Headings, Heading);
+        addCategory(HtmlTreeBuilderState.Constants.DdDt, DdDt);
+        addCategory(HtmlTreeBuilderState.Constants.InTableFoster, TableFoster);
+        addCategory(new String[]{"html", "tbody", "template", "tfoot", "thead"}, TableBodyContext);
+        addCategory(new String[]{"html", "template", "tr"}, TableRowContext);
+    }
+
+    private static void addCategory(String[] names, int category) {
+        for (String name : names) {
+            Integer current = categories.get(name);
+            categories.put(name, current == null ? category : current | category);
+        }
+    }
+
+    /**
+     Tests if an element's tag is in any of the tree building categories.
+     @param el the element
+     @param category the category bits, e.g. {@link #Special}
+     @return true if in any of the categories
+     */
+    static boolean isIn(Element el, int category) {
+        final Tag tag = el.tag();
+        int tagCategories = tag.categories;
+        if (tagCategories == 0) { // not yet resolved. Tags are shared; racing threads resolve the same value
+            Integer found = categories.get(tag.normalName());
+            tagCategories = (found != null ? found : 0) | CategoriesResolved;
+            tag.categories = tagCategories;
+        }
+        return (tagCategories & category) != 0;
+    }
+
     public static final int MaxScopeSearchDepth = 100; // prevents the parser bogging down in exceptionally broken pages
 
     private HtmlTreeBuilderState state; // the current state
@@ -56,10 +110,22 @@ public class HtmlTreeBuilder extends TreeBuilder {
     private boolean fosterInserts; // if next inserts should be fostered
     private boolean fragmentParsing; // if parsing a fragment of html
 
+    private TextNode pendingText; // if compacting text, the node that pendingChars will be set on; null if none. Its
+    // own text is stale until then, so is flushed before the tree builder reads it, and when the parse completes
+    private MergedText pendingChars; // the text of pendingText, with the character tokens appended to it (not decoded)
+
+    // the open elements whose content is skipped (see Parser#setSkipContent), to the reader pos of their content's start
+    private final IdentityHashMap<Element, Integer> skipping = new IdentityHashMap<>();
+
     ParseSettings defaultSettings() {
         return ParseSettings.htmlDefault;
     }
 
+    @Override
+    HtmlTreeBuilder newInstance() {
+        return new HtmlTreeBuilder();
+    }
+
     @Override
     protected void initialiseParse(Reader input, String baseUri, Parser parser) {
         super.initialiseParse(input, baseUri, parser);
@@ -77,6 +143,9 @@ public class HtmlTreeBuilder extends TreeBuilder {
         framesetOk = true;
         fosterInserts = false;
         fragmentParsing = false;
+        skipping.clear();
+        pendingText = null;
+        pendingChars = null;
     }
 
     List<Node> parseFragment(String inputFragment, Element context, String baseUri, Parser parser) {
@@ -108,7 +177,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
 
             root = new Element(Tag.valueOf("html", settings), baseUri);
             doc.appendChild(root);
-            stack.add(root);
+            push(root);
             resetInsertionMode();
 
             // setup form element to nearest form on context (up ancestor chain). ensures form controls are associated
@@ -124,6 +193,8 @@ public class HtmlTreeBuilder extends TreeBuilder {
         }
 
         runParser();
+        endSkipping();
+        flushPendingText();
         if (context != null)
             return root.childNodes();
         else
@@ -133,7 +204,9 @@ public class HtmlTreeBuilder extends TreeBuilder {
     @Override
     protected boolean process(Token token) {
         currentToken = token;
-        return this.state.process(token, this);
+        boolean processed = this.state.process(token, this);
+        tokeniser.skipChars = !skipping.isEmpty() && skipsCharacters(state) && isSkipped(currentElement());
+        return processed;
     }
 
     boolean process(Token token, HtmlTreeBuilderState state) {
@@ -206,8 +279,8 @@ public class HtmlTreeBuilder extends TreeBuilder {
         // handle empty unknown tags
         // when the spec expects an empty tag, will directly hit insertEmpty, so won't generate this fake end tag.
         if (startTag.isSelfClosing()) {
-            Element el = insertEmpty(startTag);
-            stack.add(el);
+            Element el = insertEmptyElement(startTag);
+            push(el);
             tokeniser.transition(TokeniserState.Data); // handles <script />, otherwise needs breakout steps from script data
             tokeniser.emit(emptyEnd.reset().name(el.tagName()));  // ensure we get out of whatever state we are in. emitted for yielded processing
             return el;
@@ -218,6 +291,87 @@ public class HtmlTreeBuilder extends TreeBuilder {
         return el;
     }
 
+    /*
+     Skipping content (see Parser#setSkipContent): the tags within a skipped element are processed as normal, so that it
+     is closed wherever a full parse would close it (by its end tag, an ancestor's end tag, or a start tag that implies
+     its end). But its characters are passed over by the tokeniser (or dropped if it could not tell where they'd go), and
+     the elements are discarded once it closes.
+     */
+
+    private void startSkipping(Element el) {
+        skipping.put(el, reader.pos()); // the tokeniser has read up to the end of the start tag, and no further
+    }
+
+    private void endSkipping(Element el) {
+        int start = skipping.remove(el);
+        el.empty();
+        if (parser.isRecordSkippedLength()) {
+            final Token token = currentToken;
+            int end = token != null && (token.isStartTag() || token.isEndTag()) ? tokeniser.tagStart : reader.pos();
+            Parser.setSkippedLength(el, Math.max(0, end - start)); // 0 if a missing end tag was implied
+        }
+    }
+
+    /** Ends the skip of any elements left open at the end of the parse. */
+    private void endSkipping() {
+        if (!skipping.isEmpty()) {
+            currentToken = null;
+            for (Element el : skipping.keySet().toArray(new Element[0]))
+                endSkipping(el);
+        }
+        tokeniser.skipChars = false;
+    }
+
+    @Override
+    boolean inSkippedContent(Node node) {
+        if (skipping.isEmpty())
+            return false;
+        for (Node parent = node.parentNode(); parent != null; parent = parent.parentNode()) {
+            if (skipping.containsKey(parent))
+                return true;
+        }
+        return false;
+    }
+
+    // if the element is skipped, or is within a skipped element
+    private boolean isSkipped(Element el) {
+        return el != null && (skipping.containsKey(el) || inSkippedContent(el));
+    }
+
+    // the states in which character tokens are always inserted into the current element
+    private static boolean skipsCharacters(HtmlTreeBuilderState state) {
+        return state == HtmlTreeBuilderState.InBody || state == HtmlTreeBuilderState.Text
+            || state == HtmlTreeBuilderState.InCell || state == HtmlTreeBuilderState.InCaption
+            || state == HtmlTreeBuilderState.InSelect;
+    }
+
+    @Override
+    void onNodeClosed(Node node) {
+        if (!skipping.isEmpty() && skipping.containsKey(node))
+            endSkipping((Element) node);
+        super.onNodeClosed(node);
+    }
+
+    @Override
+    void completeParse() {
+        if (reader != null)
+            endSkipping();
+        super.completeParse();
+    }
+
+    @Override
+    void clearParseState() {
+        super.clearParseState();
+        headElement = null;
+        formElement = null;
+        contextElement = null;
+        formattingElements = null;
+        pendingTableCharacters = null;
+        skipping.clear();
+        pendingText = null;
+        pendingChars = null;
+    }
+
     Element insertStartTag(String startTagName) {
         Element el = new Element(Tag.valueOf(startTagName, settings), null);
         insert(el);
@@ -226,21 +380,23 @@ public class HtmlTreeBuilder extends TreeBuilder {
 
     void insert(Element el) {
         insertNode(el);
-        stack.add(el);
+        push(el);
     }
 
     Element insertEmpty(Token.StartTag startTag) {
+        Element el = insertEmptyElement(startTag);
+        onNodeClosed(el); // never goes on the stack, so is complete as soon as inserted
+        return el;
+    }
+
+    private Element insertEmptyElement(Token.StartTag startTag) {
         Tag tag = Tag.valueOf(startTag.name(), settings);
+        if (startTag.isSelfClosing() && !tag.isKnownTag())
+            tag = tag.selfClosingVariant(); // unknown tag, remember this is self closing for output
         Element el = new Element(tag, null, settings.normalizeAttributes(startTag.attributes));
         insertNode(el);
-        if (startTag.isSelfClosing()) {
-            if (tag.isKnownTag()) {
-                if (!tag.isEmpty())
-                    tokeniser.error("Tag cannot be self closing; not a void tag");
-            }
-            else // unknown tag, remember this is self closing for output
-                tag.setSelfClosing();
-        }
+        if (startTag.isSelfClosing() && tag.isKnownTag() && !tag.isEmpty())
+            tokeniser.error("Tag cannot be self closing; not a void tag");
         return el;
     }
 
@@ -250,7 +406,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
         setFormElement(el);
         insertNode(el);
         if (onStack)
-            stack.add(el);
+            push(el);
         return el;
     }
 
@@ -261,19 +417,86 @@ public class HtmlTreeBuilder extends TreeBuilder {
 
     void insert(Token.Character characterToken) {
         final Node node;
-        Element el = currentElement();
+        Element el = insertionParent(false);
         if (el == null)
             el = doc; // allows for whitespace to be inserted into the doc root object (not on the stack)
         final String tagName = el.normalName();
-        final String data = characterToken.getData();
+        final CharSequence data = characterToken.data(); // not decoded, if an EncodedValue
 
+        if (!skipping.isEmpty() && isSkipped(el))
+            return; // not passed over by the tokeniser, as it could not tell that the characters go here
         if (characterToken.isCData())
-            node = new CDataNode(data);
+            node = new CDataNode(characterToken.getData());
         else if (tagName.equals("script") || tagName.equals("style"))
-            node = new DataNode(data);
+            node = NodeAccess.get().lazyDataNode(data);
+        else if (settings.compactText() && compactText(el, data))
+            return;
         else
-            node = new TextNode(data);
+            node = NodeAccess.get().lazyTextNode(data);
         el.appendChild(node); // doesn't use insertNode, because we don't foster these; and will always have a stack.
+        onNodeInserted(node);
+    }
+
+    /**
+     If compacting text (see {@link ParseSettings#compactText()}), appends the text to a preceding text node, or drops
+     ignorable whitespace at the start of a block.
+     @return true if the text was appended or dropped, and so should not be inserted
+     */
+    private boolean compactText(Element el, CharSequence data) {
+        final Node last = el.childNodeSize() > 0 ? el.childNode(el.childNodeSize() - 1) : null;
+        if (last != null) {
+            if (last.getClass() != TextNode.class || nodeListener != null) // a listener has already seen the last node
+                return false; // whitespace after a block is dropped later, if a block follows it (see dropIgnorableWhitespace)
+            TextNode text = (TextNode) last;
+            if (text != pendingText) { // appended in a builder, and set on the node once done; vs a copy per token
+                flushPendingText();
+                pendingText = text;
+                pendingChars = new MergedText(NodeAccess.get().lazyText(text));
+            }
+            pendingChars.append(data);
+            return true;
+        }
+        return isIgnorableWhitespace(el, data);
+    }
+
+    @Override
+    void flushPendingText() {
+        if (pendingText != null) {
+            NodeAccess.get().lazyText(pendingText, pendingChars.complete());
+            pendingText = null;
+            pendingChars = null;
+        }
+    }
+
+    /**
+     If compacting text, removes a whitespace-only text node from the end of the parent, if it follows a block element,
+     as it would not render before the block element that is about to be inserted.
+     */
+    private void dropIgnorableWhitespace(Element parent) {
+        flushPendingText(); // e.g. a reconstructed formatting element, inserted while processing characters
+        final int size = parent.childNodeSize();
+        if (size == 0 || nodeListener != null)
+            return;
+        final Node last = parent.childNode(size - 1);
+        if (last.getClass() != TextNode.class)
+            return;
+        final Node prev = size > 1 ? parent.childNode(size - 2) : null;
+        if ((prev == null || prev instanceof Element && ((Element) prev).isBlock())
+            && isIgnorableWhitespace(parent, NodeAccess.get().lazyText((TextNode) last)))
+            last.remove();
+    }
+
+    // text that is only whitespace, in a block that does not preserve whitespace (e.g. pre)
+    private static boolean isIgnorableWhitespace(Element el, CharSequence data) {
+        if (el.tag().isInline())
+            return false;
+        if (!EncodedValue.isBlank(data))
+            return false;
+        for (Element parent = el; parent != null; parent = parent.parent()) {
+            if (parent.tag().preserveWhitespace())
+                return false;
+        }
+        return true;
     }
 
     private void insertNode(Node node) {
@@ -282,23 +505,25 @@ public class HtmlTreeBuilder extends TreeBuilder {
             doc.appendChild(node);
         else if (isFosterInserts())
             insertInFosterParent(node);
-        else
-            currentElement().appendChild(node);
+        else {
+            final Element parent = insertionParent(node instanceof Element);
+            if (settings.compactText() && node instanceof Element && ((Element) node).isBlock())
+                dropIgnorableWhitespace(parent);
+            parent.appendChild(node);
+        }
 
         // connect form controls to their form element
         if (node instanceof Element && ((Element) node).tag().isFormListed()) {
             if (formElement != null)
                 formElement.addElement((Element) node);
         }
-    }
-
-    Element pop() {
-        int size = stack.size();
-        return stack.remove(size-1);
+        onNodeInserted(node);
     }
 
     void push(Element element) {
         stack.add(element);
+        if (parser.isSkipContent(element.normalName()))
+            startSkipping(element);
     }
 
     ArrayList<Element> getStack() {
@@ -334,6 +559,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
             Element next = stack.get(pos);
             if (next == el) {
                 stack.remove(pos);
+                onNodeClosed(el);
                 return true;
             }
         }
@@ -341,9 +567,8 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     Element popStackToClose(String elName) {
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element el = stack.get(pos);
-            stack.remove(pos);
+        while (!stack.isEmpty()) {
+            Element el = pop();
             if (el.normalName().equals(elName))
                 return el;
         }
@@ -352,44 +577,40 @@ public class HtmlTreeBuilder extends TreeBuilder {
 
     // elnames is sorted, comes from Constants
     void popStackToClose(String... elNames) {
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element next = stack.get(pos);
-            stack.remove(pos);
+        while (!stack.isEmpty()) {
+            Element next = pop();
             if (inSorted(next.normalName(), elNames))
                 break;
         }
     }
 
     void popStackToBefore(String elName) {
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element next = stack.get(pos);
-            if (next.normalName().equals(elName)) {
+        while (!stack.isEmpty()) {
+            if (currentElement().normalName().equals(elName))
                 break;
-            } else {
-                stack.remove(pos);
-            }
+            pop();
         }
     }
 
     void clearStackToTableContext() {
-        clearStackToContext("table");
+        clearStackToContext(TableScopeBoundary); // table, html
     }
 
     void clearStackToTableBodyContext() {
-        clearStackToContext("tbody", "tfoot", "thead", "template");
+        clearStackToContext(TableBodyContext); // tbody, tfoot, thead, template, html
     }
 
     void clearStackToTableRowContext() {
-        clearStackToContext("tr", "template");
+        clearStackToContext(TableRowContext); // tr, template, html
     }
 
-    private void clearStackToContext(String... nodeNames) {
+    private void clearStackToContext(int context) {
         for (int pos = stack.size() -1; pos >= 0; pos--) {
             Element next = stack.get(pos);
-            if (StringUtil.in(next.normalName(), nodeNames) || next.normalName().equals("html"))
+            if (isIn(next, context))
                 break;
             else
-                stack.remove(pos);
+                pop();
         }
     }
 
@@ -408,10 +629,16 @@ public class HtmlTreeBuilder extends TreeBuilder {
         int i = stack.lastIndexOf(after);
         Validate.isTrue(i != -1);
         stack.add(i+1, in);
+        if (parser.isSkipContent(in.normalName()))
+            startSkipping(in);
     }
 
     void replaceOnStack(Element out, Element in) {
         replaceInQueue(stack, out, in);
+        if (!skipping.isEmpty() && skipping.containsKey(out))
+            endSkipping(out);
+        if (parser.isSkipContent(in.normalName()))
+            startSkipping(in);
     }
 
     private void replaceInQueue(ArrayList<Element> queue, Element out, Element in) {
@@ -469,66 +696,65 @@ public class HtmlTreeBuilder extends TreeBuilder {
         }
     }
 
-    // todo: tidy up in specific scope methods
-    private String[] specificScopeTarget = {null};
-
-    private boolean inSpecificScope(String targetName, String[] baseTypes, String[] extraTypes) {
-        specificScopeTarget[0] = targetName;
-        return inSpecificScope(specificScopeTarget, baseTypes, extraTypes);
-    }
-
-    private boolean inSpecificScope(String[] targetNames, String[] baseTypes, String[] extraTypes) {
+    private boolean inSpecificScope(String targetName, int boundaries) {
         // https://html.spec.whatwg.org/multipage/parsing.html#has-an-element-in-the-specific-scope
         final int bottom = stack.size() -1;
         final int top = bottom > MaxScopeSearchDepth ? bottom - MaxScopeSearchDepth : 0;
         // don't walk too far up the tree
 
         for (int pos = bottom; pos >= top; pos--) {
-            final String elName = stack.get(pos).normalName();
-            if (inSorted(elName, targetNames))
+            final Element el = stack.get(pos);
+            if (el.normalName().equals(targetName))
                 return true;
-            if (inSorted(elName, baseTypes))
-                return false;
-            if (extraTypes != null && inSorted(elName, extraTypes))
+            if (isIn(el, boundaries))
                 return false;
         }
         //Validate.fail("Should not be reachable"); // would end up false because hitting 'html' at root (basetypes)
         return false;
     }
 
-    boolean inScope(String[] targetNames) {
-        return inSpecificScope(targetNames, TagsSearchInScope, null);
+    private boolean inSpecificScope(String[] targetNames, int boundaries) {
+        final int bottom = stack.size() -1;
+        final int top = bottom > MaxScopeSearchDepth ? bottom - MaxScopeSearchDepth : 0;
+
+        for (int pos = bottom; pos >= top; pos--) {
+            final Element el = stack.get(pos);
+            if (inSorted(el.normalName(), targetNames))
+                return true;
+            if (isIn(el, boundaries))
+                return false;
+        }
+        return false;
     }
 
-    boolean inScope(String targetName) {
-        return inScope(targetName, null);
+    boolean inScope(String[] targetNames) {
+        return inSpecificScope(targetNames, ScopeBoundary);
     }
 
-    boolean inScope(String targetName, String[] extras) {
-        return inSpecificScope(targetName, TagsSearchInScope, extras);
+    boolean inScope(String targetName) {
+        return inSpecificScope(targetName, ScopeBoundary);
         // todo: in mathml namespace: mi, mo, mn, ms, mtext annotation-xml
         // todo: in svg namespace: forignOjbect, desc, title
     }
 
     boolean inListItemScope(String targetName) {
-        return inScope(targetName, TagSearchList);
+        return inSpecificScope(targetName, ScopeBoundary | ListScopeBoundary);
     }
 
     boolean inButtonScope(String targetName) {
-        return inScope(targetName, TagSearchButton);
+        return inSpecificScope(targetName, ScopeBoundary | ButtonScopeBoundary);
     }
 
     boolean inTableScope(String targetName) {
-        return inSpecificScope(targetName, TagSearchTableScope, null);
+        return inSpecificScope(targetName, TableScopeBoundary);
     }
 
     boolean inSelectScope(String targetName) {
         for (int pos = stack.size() -1; pos >= 0; pos--) {
             Element el = stack.get(pos);
-            String elName = el.normalName();
-            if (elName.equals(targetName))
+            if (el.normalName().equals(targetName))
                 return true;
-            if (!inSorted(elName, TagSearchSelectScope)) // all elements except
+            if (!isIn(el, SelectScopeMember)) // all elements except
                 return false;
         }
         Validate.fail("Should not be reachable");
@@ -578,7 +804,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
      */
     void generateImpliedEndTags(String excludeTag) {
         while ((excludeTag != null && !currentElement().normalName().equals(excludeTag)) &&
-                inSorted(currentElement().normalName(), TagSearchEndTags))
+                isIn(currentElement(), ImpliedEndTag))
             pop();
     }
 
@@ -589,8 +815,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
     boolean isSpecial(Element el) {
         // todo: mathml's mi, mo, mn
         // todo: svg's foreigObject, desc, title
-        String name = el.normalName();
-        return inSorted(name, TagSearchSpecial);
+        return isIn(el, Special);
     }
 
     Element lastFormattingElement() {
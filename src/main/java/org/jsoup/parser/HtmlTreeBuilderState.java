@@ -31,6 +31,7 @@ enum HtmlTreeBuilderState {
                     tb.settings.normalizeTag(d.getName()), d.getPublicIdentifier(), d.getSystemIdentifier());
                 doctype.setPubSysKey(d.getPubSysKey());
                 tb.getDocument().appendChild(doctype);
+                tb.onNodeInserted(doctype);
                 if (d.isForceQuirks())
                     tb.getDocument().quirksMode(Document.QuirksMode.quirks);
                 tb.transition(BeforeHtml);
@@ -256,7 +257,7 @@ enum HtmlTreeBuilderState {
             switch (t.type) {
                 case Character: {
                     Token.Character c = t.asCharacter();
-                    if (c.getData().equals(nullString)) {
+                    if (nullString.equals(c.data())) {
                         // todo confirm that check
                         tb.error(this);
                         return false;
@@ -327,7 +328,7 @@ enum HtmlTreeBuilderState {
                             tb.processEndTag("li");
                             break;
                         }
-                        if (tb.isSpecial(el) && !inSorted(el.normalName(), Constants.InBodyStartLiBreakers))
+                        if (tb.isSpecial(el) && !HtmlTreeBuilder.isIn(el, HtmlTreeBuilder.LiBreaker))
                             break;
                     }
                     if (tb.inButtonScope("p")) {
@@ -532,7 +533,7 @@ enum HtmlTreeBuilderState {
                     if (tb.inButtonScope("p")) {
                         tb.processEndTag("p");
                     }
-                    if (inSorted(tb.currentElement().normalName(), Constants.Headings)) {
+                    if (HtmlTreeBuilder.isIn(tb.currentElement(), HtmlTreeBuilder.Heading)) {
                         tb.error(this);
                         tb.pop();
                     }
@@ -555,11 +556,11 @@ enum HtmlTreeBuilderState {
                     stack = tb.getStack();
                     for (int i = stack.size() - 1; i > 0; i--) {
                         el = stack.get(i);
-                        if (inSorted(el.normalName(), Constants.DdDt)) {
+                        if (HtmlTreeBuilder.isIn(el, HtmlTreeBuilder.DdDt)) {
                             tb.processEndTag(el.normalName());
                             break;
                         }
-                        if (tb.isSpecial(el) && !inSorted(el.normalName(), Constants.InBodyStartLiBreakers))
+                        if (tb.isSpecial(el) && !HtmlTreeBuilder.isIn(el, HtmlTreeBuilder.LiBreaker))
                             break;
                     }
                     if (tb.inButtonScope("p")) {
@@ -844,7 +845,7 @@ enum HtmlTreeBuilderState {
                     lastNode = node;
                 }
 
-                if (inSorted(commonAncestor.normalName(), Constants.InBodyEndTableFosters)) {
+                if (HtmlTreeBuilder.isIn(commonAncestor, HtmlTreeBuilder.TableFoster)) {
                     if (lastNode.parent() != null)
                         lastNode.remove();
                     tb.insertInFosterParent(lastNode);
@@ -977,7 +978,7 @@ enum HtmlTreeBuilderState {
         boolean anythingElse(Token t, HtmlTreeBuilder tb) {
             tb.error(this);
             boolean processed;
-            if (inSorted(tb.currentElement().normalName(), InTableFoster)) {
+            if (HtmlTreeBuilder.isIn(tb.currentElement(), HtmlTreeBuilder.TableFoster)) {
                 tb.setFosterInserts(true);
                 processed = tb.process(t, InBody);
                 tb.setFosterInserts(false);
@@ -991,7 +992,7 @@ enum HtmlTreeBuilderState {
         boolean process(Token t, HtmlTreeBuilder tb) {
             if (t.type == Token.TokenType.Character) {
                 Token.Character c = t.asCharacter();
-                if (c.getData().equals(nullString)) {
+                if (nullString.equals(c.data())) {
                     tb.error(this);
                     return false;
                 } else {
@@ -1003,7 +1004,7 @@ enum HtmlTreeBuilderState {
                         if (!isWhitespace(character)) {
                             // InTable anything else section:
                             tb.error(this);
-                            if (inSorted(tb.currentElement().normalName(), InTableFoster)) {
+                            if (HtmlTreeBuilder.isIn(tb.currentElement(), HtmlTreeBuilder.TableFoster)) {
                                 tb.setFosterInserts(true);
                                 tb.process(new Token.Character().data(character), InBody);
                                 tb.setFosterInserts(false);
@@ -1296,7 +1297,7 @@ enum HtmlTreeBuilderState {
             switch (t.type) {
                 case Character:
                     Token.Character c = t.asCharacter();
-                    if (c.getData().equals(nullString)) {
+                    if (nullString.equals(c.data())) {
                         tb.error(this);
                         return false;
                     } else {
@@ -1513,10 +1514,11 @@ enum HtmlTreeBuilderState {
                 // allows space after </html>, and put the body back on stack to allow subsequent tags if any
                 // todo - might be better for </body> and </html> to close them, allow trailing space, and then reparent
                 //  that space into body if other tags get re-added. but that's overkill for now
+                Element body = tb.getFromStack("body");
                 Element html = tb.popStackToClose("html");
                 tb.insert(t.asCharacter());
-                tb.stack.add(html);
-                tb.stack.add(html.selectFirst("body"));
+                tb.push(html);
+                tb.push(body != null ? body : html.selectFirst("body"));
             }else if (t.isEOF()) {
                 // nice work chuck
             } else {
@@ -1551,15 +1553,14 @@ enum HtmlTreeBuilderState {
         }
     };
 
+    // tested with equals, vs contentEquals: an encoded value is never the lone null char, so is not materialised
     private static final String nullString = String.valueOf('\u0000');
 
     abstract boolean process(Token t, HtmlTreeBuilder tb);
 
     private static boolean isWhitespace(Token t) {
-        if (t.isCharacter()) {
-            String data = t.asCharacter().getData();
-            return StringUtil.isBlank(data);
-        }
+        if (t.isCharacter())
+            return EncodedValue.isBlank(t.asCharacter().data()); // not decoded, if the raw form shows it is not blank
         return false;
     }
 
@@ -0,0 +1,100 @@
+package org.jsoup.parser;
+
+import org.jsoup.internal.StringUtil;
+
+import java.util.ArrayList;
+
+/**
+ Text compacted from several character tokens (see {@link ParseSettings#compactText()}), some of which hold undecoded
+ character references (see {@link EncodedValue}). The parts are kept as read, and joined and decoded when the text is
+ first read. Their raw forms can't simply be joined, as a reference could then run across the boundary of two parts.
+ */
+final class MergedText implements CharSequence {
+    private ArrayList<CharSequence> parts = new ArrayList<>(4); // Strings and EncodedValues
+    private StringBuilder plain = StringUtil.borrowBuilder(); // plain text following the last part
+    private String merged; // set when first read
+
+    MergedText(CharSequence first) {
+        append(first);
+    }
+
+    void append(CharSequence text) {
+        if (text instanceof EncodedValue) {
+            completePlain();
+            parts.add(text);
+        } else if (text instanceof MergedText && ((MergedText) text).merged == null) {
+            completePlain();
+            parts.addAll(((MergedText) text).parts);
+        } else {
+            plain.append(text);
+        }
+    }
+
+    private void completePlain() {
+        if (plain.length() > 0) {
+            parts.add(plain.toString());
+            plain.setLength(0);
+        }
+    }
+
+    /**
+     Completes the text, once all its parts are appended.
+     @return a String if no parts are encoded, or else this, to be joined and decoded when first read
+     */
+    CharSequence complete() {
+        if (parts.isEmpty()) {
+            merged = StringUtil.releaseBuilder(plain);
+            plain = null;
+            return merged;
+        }
+        completePlain();
+        StringUtil.releaseBuilder(plain);
+        plain = null;
+        parts.trimToSize();
+        return this;
+    }
+
+    boolean isDecoded() {
+        return merged != null;
+    }
+
+    /**
+     Tests if the text is blank, decoding only the parts that need it (see {@link EncodedValue#isBlank}).
+     */
+    boolean isBlank() {
+        if (merged != null)
+            return StringUtil.isBlank(merged);
+        for (CharSequence part : parts) {
+            if (!EncodedValue.isBlank(part))
+                return false;
+        }
+        return plain == null || StringUtil.isBlank(plain.toString());
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (merged == null) {
+            final StringBuilder sb = StringUtil.borrowBuilder();
+            for (CharSequence part : parts)
+                sb.append(part.toString()); // decodes an EncodedValue
+            merged = StringUtil.releaseBuilder(sb);
+            parts = null;
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,87 @@
+package org.jsoup.parser;
+
+/**
+ A global table of tag and attribute name strings, shared across parses, so that names read from different documents
+ share the same String instances. That reduces allocation during parsing, and the retained size of many documents.
+ <p>The table is seeded with the known tag names (the same instances as used by {@link Tag}) and common attribute
+ names; those are never evicted. Other names go into a bounded, direct mapped table, where a name may replace a
+ previous one with the same slot. The table is lock-free: slots hold immutable Strings, so racing reads and writes only
+ ever see a complete String, or miss.</p>
+ */
+final class NameTable {
+    private static final int maxNameLen = 32; // longer names are not retained
+    private static final int seededSize = 1024; // power of two, at least 2x the seed count
+    private static final String[] seeded = new String[seededSize]; // open addressed; read only after init
+    private static final int dynamicSize = 4096; // power of two
+    private static final String[] dynamic = new String[dynamicSize]; // direct mapped; racy by design
+
+    private static final String[] attributeNames = {
+        "abbr", "accept", "accept-charset", "accesskey", "action", "align", "alink", "allow", "allowfullscreen", "alt",
+        "aria-describedby", "aria-expanded", "aria-hidden", "aria-label", "aria-labelledby", "async", "autocomplete",
+        "autofocus", "autoplay", "background", "bgcolor", "border", "cellpadding", "cellspacing", "charset", "checked",
+        "cite", "class", "clear", "color", "cols", "colspan", "content", "contenteditable", "controls", "coords",
+        "crossorigin", "data", "data-id", "datetime", "decoding", "default", "defer", "dir", "disabled", "download",
+        "draggable", "enctype", "face", "for", "form", "frameborder", "headers", "height", "hidden", "high", "href",
+        "hreflang", "hspace", "http-equiv", "id", "integrity", "itemprop", "itemscope", "itemtype", "label", "lang",
+        "language", "link", "list", "loading", "loop", "low", "marginheight", "marginwidth", "max", "maxlength", "media",
+        "method", "min", "minlength", "multiple", "muted", "name", "nonce", "noshade", "novalidate", "nowrap", "onblur",
+        "onchange", "onclick", "onerror", "onfocus", "onkeydown", "onkeyup", "onload", "onmousedown", "onmouseout",
+        "onmouseover", "onmouseup", "onsubmit", "open", "optimum", "pattern", "ping", "placeholder", "poster", "preload",
+        "property", "readonly", "referrerpolicy", "rel", "required", "rev", "reversed", "role", "rows", "rowspan",
+        "sandbox", "scope", "scrolling", "selected", "shape", "size", "sizes", "span", "spellcheck", "src", "srcdoc",
+        "srclang", "srcset", "start", "step", "style", "summary", "tabindex", "target", "text", "title", "translate",
+        "type", "usemap", "valign", "value", "version", "vlink", "vspace", "width", "wrap", "xml:lang", "xmlns",
+        "xmlns:xlink", "xlink:href"
+    };
+
+    static {
+        for (String name : Tag.knownTagNames())
+            seed(name);
+        for (String name : attributeNames)
+            seed(name);
+    }
+
+    private NameTable() {}
+
+    private static void seed(String name) {
+        int index = name.hashCode() & seededSize - 1;
+        while (seeded[index] != null) {
+            if (seeded[index].equals(name))
+                return;
+            index = index + 1 & seededSize - 1;
+        }
+        seeded[index] = name;
+    }
+
+    /**
+     Get the shared String for the name in the char range.
+     @param buf the chars
+     @param start the start of the name
+     @param count the length of the name
+     @return a shared String with the same value as the range
+     */
+    static String intern(final char[] buf, final int start, final int count) {
+        if (count > maxNameLen)
+            return new String(buf, start, count);
+        if (count < 1)
+            return "";
+
+        int hash = 0; // same as String.hashCode()
+        for (int i = start, end = start + count; i < end; i++)
+            hash = 31 * hash + buf[i];
+
+        final String[] seeded = NameTable.seeded;
+        for (int index = hash & seededSize - 1; seeded[index] != null; index = index + 1 & seededSize - 1) {
+            if (CharacterReader.rangeEquals(buf, start, count, seeded[index]))
+                return seeded[index];
+        }
+
+        final int index = (hash ^ hash >>> 16) & dynamicSize - 1;
+        String name = dynamic[index];
+        if (name == null || !CharacterReader.rangeEquals(buf, start, count, name)) {
+            name = new String(buf, start, count);
+            dynamic[index] = name;
+        }
+        return name;
+    }
+}
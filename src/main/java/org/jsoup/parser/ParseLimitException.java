@@ -0,0 +1,16 @@
+package org.jsoup.parser;
+
+/**
+ A ParseLimitException is thrown when a parse exceeds one of its {@link ParseLimits} that is set to {@link
+ ParseLimits.Action#Fail fail}.
+ */
+@SuppressWarnings("serial")
+public class ParseLimitException extends RuntimeException {
+    /**
+     Creates a new ParseLimitException.
+     @param message a description of the limit that was exceeded
+     */
+    public ParseLimitException(String message) {
+        super(message);
+    }
+}
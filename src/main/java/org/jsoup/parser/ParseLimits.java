@@ -0,0 +1,243 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.Validate;
+
+/**
+ Resource limits for a parse, to bound the time and memory that hostile or broken input can use. Each limit is off by
+ default, and when set may either truncate the parse gracefully, or fail it with a {@link ParseLimitException}. A
+ {@link #timeout(int) timeout} always fails the parse.
+ <p>Example:</p>
+ <pre>{@code
+ Parser parser = Parser.htmlParser();
+ parser.limits()
+     .maxDepth(512)
+     .maxAttributes(256)
+     .maxInputChars(10 * 1024 * 1024, ParseLimits.Action.Fail)
+     .timeout(2000);
+ Document doc = Jsoup.parse(html, baseUri, parser);
+ }</pre>
+ <p>The limits are read when each parse starts.</p>
+ */
+public class ParseLimits implements Cloneable {
+    /**
+     What to do when a limit is exceeded.
+     */
+    public enum Action {
+        /** Truncate the excess (as described for each limit), and continue with the parse. */
+        Truncate,
+        /** Stop the parse, by throwing a {@link ParseLimitException}. */
+        Fail
+    }
+
+    private static final int Unlimited = Integer.MAX_VALUE;
+
+    int maxDepth = Unlimited;
+    Action depthAction = Action.Truncate;
+    int maxNodes = Unlimited;
+    Action nodesAction = Action.Truncate;
+    int maxAttributes = Unlimited;
+    Action attributesAction = Action.Truncate;
+    int maxAttributeValueLength = Unlimited;
+    Action attributeValueAction = Action.Truncate;
+    int maxInputChars = Unlimited;
+    Action inputCharsAction = Action.Truncate;
+    int timeout = 0; // millis
+
+    /**
+     Create a new ParseLimits, with no limits set.
+     */
+    public ParseLimits() {}
+
+    /**
+     Get the maximum depth of nested elements.
+     @return the maximum depth; {@link Integer#MAX_VALUE} if unlimited
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     Set the maximum depth of nested elements, where the root element (e.g. {@code html}) is at depth 1. When truncating,
+     elements that would be nested deeper are inserted as siblings at the maximum depth.
+     @param max the maximum depth; must be at least 2
+     @return this, for chaining
+     */
+    public ParseLimits maxDepth(int max) {
+        return maxDepth(max, Action.Truncate);
+    }
+
+    /**
+     Set the maximum depth of nested elements, and the action when it is exceeded.
+     @param max the maximum depth; must be at least 2
+     @param action the action when the limit is exceeded
+     @return this, for chaining
+     @see #maxDepth(int)
+     */
+    public ParseLimits maxDepth(int max, Action action) {
+        Validate.isTrue(max >= 2, "maxDepth must be >= 2");
+        Validate.notNull(action);
+        maxDepth = max;
+        depthAction = action;
+        return this;
+    }
+
+    /**
+     Get the maximum number of nodes in the parsed document.
+     @return the maximum number of nodes; {@link Integer#MAX_VALUE} if unlimited
+     */
+    public int maxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     Set the maximum number of nodes (elements, text, comments etc) that the parser will insert. When truncating, the
+     parse ends once the limit is reached, and the document holds the content parsed to that point.
+     @param max the maximum number of nodes
+     @return this, for chaining
+     */
+    public ParseLimits maxNodes(int max) {
+        return maxNodes(max, Action.Truncate);
+    }
+
+    /**
+     Set the maximum number of nodes that the parser will insert, and the action when it is exceeded.
+     @param max the maximum number of nodes
+     @param action the action when the limit is exceeded
+     @return this, for chaining
+     @see #maxNodes(int)
+     */
+    public ParseLimits maxNodes(int max, Action action) {
+        Validate.isTrue(max > 0, "maxNodes must be > 0");
+        Validate.notNull(action);
+        maxNodes = max;
+        nodesAction = action;
+        return this;
+    }
+
+    /**
+     Get the maximum number of attributes on an element.
+     @return the maximum number of attributes; {@link Integer#MAX_VALUE} if unlimited
+     */
+    public int maxAttributes() {
+        return maxAttributes;
+    }
+
+    /**
+     Set the maximum number of attributes on an element. When truncating, attributes past the limit are dropped.
+     @param max the maximum number of attributes
+     @return this, for chaining
+     */
+    public ParseLimits maxAttributes(int max) {
+        return maxAttributes(max, Action.Truncate);
+    }
+
+    /**
+     Set the maximum number of attributes on an element, and the action when it is exceeded.
+     @param max the maximum number of attributes
+     @param action the action when the limit is exceeded
+     @return this, for chaining
+     @see #maxAttributes(int)
+     */
+    public ParseLimits maxAttributes(int max, Action action) {
+        Validate.isTrue(max >= 0, "maxAttributes must be >= 0");
+        Validate.notNull(action);
+        maxAttributes = max;
+        attributesAction = action;
+        return this;
+    }
+
+    /**
+     Get the maximum length of an attribute value.
+     @return the maximum length; {@link Integer#MAX_VALUE} if unlimited
+     */
+    public int maxAttributeValueLength() {
+        return maxAttributeValueLength;
+    }
+
+    /**
+     Set the maximum length of an attribute value. When truncating, longer values are cut to the limit.
+     @param max the maximum length
+     @return this, for chaining
+     */
+    public ParseLimits maxAttributeValueLength(int max) {
+        return maxAttributeValueLength(max, Action.Truncate);
+    }
+
+    /**
+     Set the maximum length of an attribute value, and the action when it is exceeded.
+     @param max the maximum length
+     @param action the action when the limit is exceeded
+     @return this, for chaining
+     @see #maxAttributeValueLength(int)
+     */
+    public ParseLimits maxAttributeValueLength(int max, Action action) {
+        Validate.isTrue(max >= 0, "maxAttributeValueLength must be >= 0");
+        Validate.notNull(action);
+        maxAttributeValueLength = max;
+        attributeValueAction = action;
+        return this;
+    }
+
+    /**
+     Get the maximum number of characters read from the input.
+     @return the maximum number of characters; {@link Integer#MAX_VALUE} if unlimited
+     */
+    public int maxInputChars() {
+        return maxInputChars;
+    }
+
+    /**
+     Set the maximum number of characters read from the input. When truncating, the input is treated as ending at the
+     limit.
+     @param max the maximum number of characters
+     @return this, for chaining
+     */
+    public ParseLimits maxInputChars(int max) {
+        return maxInputChars(max, Action.Truncate);
+    }
+
+    /**
+     Set the maximum number of characters read from the input, and the action when it is exceeded.
+     @param max the maximum number of characters
+     @param action the action when the limit is exceeded
+     @return this, for chaining
+     @see #maxInputChars(int)
+     */
+    public ParseLimits maxInputChars(int max, Action action) {
+        Validate.isTrue(max >= 0, "maxInputChars must be >= 0");
+        Validate.notNull(action);
+        maxInputChars = max;
+        inputCharsAction = action;
+        return this;
+    }
+
+    /**
+     Get the parse timeout.
+     @return the timeout, in milliseconds; 0 if none
+     */
+    public int timeout() {
+        return timeout;
+    }
+
+    /**
+     Set the parse timeout. A parse that runs past it, from when the parse starts, fails with a {@link
+     ParseTimeoutException}. The clock is checked periodically as the input is tokenised, so the timeout is enforced
+     to within a few milliseconds.
+     @param millis the timeout, in milliseconds; 0 for none
+     @return this, for chaining
+     */
+    public ParseLimits timeout(int millis) {
+        Validate.isTrue(millis >= 0, "timeout must be >= 0");
+        timeout = millis;
+        return this;
+    }
+
+    @Override
+    public ParseLimits clone() {
+        try {
+            return (ParseLimits) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
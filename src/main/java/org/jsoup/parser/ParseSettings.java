@@ -5,7 +5,7 @@ import org.jsoup.nodes.Attributes;
 import static org.jsoup.internal.Normalizer.lowerCase;
 
 /**
- * Controls parser settings, to optionally preserve tag and/or attribute name case.
+ * Controls parser settings, to optionally preserve tag and/or attribute name case, and to compact text nodes.
  */
 public class ParseSettings {
     /**
@@ -24,6 +24,7 @@ public class ParseSettings {
 
     private final boolean preserveTagCase;
     private final boolean preserveAttributeCase;
+    private final boolean compactText;
 
     /**
      * Returns true if preserving tag name case.
@@ -39,14 +40,39 @@ public class ParseSettings {
         return preserveAttributeCase;
     }
 
+    /**
+     * Returns true if compacting text nodes.
+     * @see #ParseSettings(boolean, boolean, boolean)
+     */
+    public boolean compactText() {
+        return compactText;
+    }
+
     /**
      * Define parse settings.
      * @param tag preserve tag case?
      * @param attribute preserve attribute name case?
      */
     public ParseSettings(boolean tag, boolean attribute) {
+        this(tag, attribute, false);
+    }
+
+    /**
+     * Define parse settings.
+     * <p>When compacting text, the HTML parser does not keep whitespace-only text nodes where the whitespace is not
+     * rendered: at the start of a block element, or between block elements; except within elements that {@link
+     * Tag#preserveWhitespace() preserve whitespace}, like {@code pre} and {@code textarea}. Whitespace next to inline
+     * content is kept. And text that would be inserted next to an existing text node is appended to that node,
+     * vs creating an adjacent one. That gives documents fewer nodes to hold and traverse, with the same {@link
+     * org.jsoup.nodes.Element#text() text}.</p>
+     * @param tag preserve tag case?
+     * @param attribute preserve attribute name case?
+     * @param compactText drop ignorable whitespace text nodes, and merge adjacent text?
+     */
+    public ParseSettings(boolean tag, boolean attribute, boolean compactText) {
         preserveTagCase = tag;
         preserveAttributeCase = attribute;
+        this.compactText = compactText;
     }
 
     /**
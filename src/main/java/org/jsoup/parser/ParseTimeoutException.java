@@ -0,0 +1,15 @@
+package org.jsoup.parser;
+
+/**
+ A ParseTimeoutException is thrown when a parse runs past its {@link ParseLimits#timeout(int) timeout}.
+ */
+@SuppressWarnings("serial")
+public class ParseTimeoutException extends ParseLimitException {
+    /**
+     Creates a new ParseTimeoutException.
+     @param message a description of the timeout
+     */
+    public ParseTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -1,13 +1,19 @@
 package org.jsoup.parser;
 
+import org.jsoup.helper.Validate;
+import org.jsoup.internal.NodeAccess;
+import org.jsoup.internal.Normalizer;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.jsoup.internal.StringUtil.inSorted;
+
 /**
  * Parses HTML into a {@link org.jsoup.nodes.Document}. Generally best to use one of the  more convenient parse methods
  * in {@link org.jsoup.Jsoup}.
@@ -16,6 +22,11 @@ public class Parser {
     private TreeBuilder treeBuilder;
     private ParseErrorList errors;
     private ParseSettings settings;
+    ParseLimits limits; // null if none set
+    private boolean lazyEntities;
+    private String[] skipContent; // sorted normal names of the tags whose content is skipped; null if none
+    private boolean recordSkippedLength;
+    private static final String skippedLengthKey = NodeAccess.get().internalKey("jsoup.skippedLength"); // hidden from output
 
     /**
      * Create a new Parser, using the specified TreeBuilder
@@ -26,6 +37,30 @@ public class Parser {
         settings = treeBuilder.defaultSettings();
         errors = ParseErrorList.noTracking();
     }
+
+    /**
+     Creates a new Parser, that is a deep copy of this one: it has the same type of TreeBuilder, the same settings, and
+     the same error tracking limit (but its own error list). Useful to run independent parses, e.g. on another thread.
+     @return a new Parser
+     */
+    public Parser newInstance() {
+        Parser copy = new Parser(treeBuilder.newInstance());
+        copy.settings = settings;
+        copy.setTrackErrors(errors.getMaxSize());
+        if (limits != null)
+            copy.limits = limits.clone();
+        copy.lazyEntities = lazyEntities;
+        copy.skipContent = skipContent;
+        copy.recordSkippedLength = recordSkippedLength;
+        return copy;
+    }
+
+    // a copy to retain in a parsed Document, sharing the parse's errors, but not this parser's recycled buffers
+    Parser copyForDocument() {
+        Parser copy = newInstance();
+        copy.errors = errors;
+        return copy;
+    }
     
     public Document parseInput(String html, String baseUri) {
         return treeBuilder.parse(new StringReader(html), baseUri, this);
@@ -35,6 +70,21 @@ public class Parser {
         return treeBuilder.parse(inputHtml, baseUri, this);
     }
 
+    /**
+     Parse the input, reporting its elements, text and comments to the handler as the parser completes them, instead of
+     building a complete Document. Only the currently open elements (and content pending within them) are held in
+     memory, so this is useful for extracting data from large inputs.
+     @param inputHtml input to parse
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @param handler the handler to receive parse events
+     @see StreamHandler
+     */
+    public void parseInput(Reader inputHtml, String baseUri, StreamHandler handler) {
+        StreamEmitter emitter = new StreamEmitter(handler, treeBuilder);
+        Document doc = treeBuilder.parse(inputHtml, baseUri, this, emitter);
+        emitter.finish(doc);
+    }
+
     public List<Node> parseFragmentInput(String fragment, Element context, String baseUri) {
         return treeBuilder.parseFragment(fragment, context, baseUri, this);
     }
@@ -93,6 +143,134 @@ public class Parser {
         return settings;
     }
 
+    /**
+     Get the resource limits for parses with this parser, to update them. (No limits are set by default.)
+     @return the parse limits
+     @see ParseLimits
+     */
+    public ParseLimits limits() {
+        if (limits == null)
+            limits = new ParseLimits();
+        return limits;
+    }
+
+    /**
+     Set the resource limits for parses with this parser.
+     @param limits the parse limits
+     @return this, for chaining
+     */
+    public Parser limits(ParseLimits limits) {
+        Validate.notNull(limits);
+        this.limits = limits;
+        return this;
+    }
+
+    /**
+     Check if this parser defers decoding character references.
+     @return true if decoding is deferred
+     @see #setLazyEntities(boolean)
+     */
+    public boolean isLazyEntities() {
+        return lazyEntities;
+    }
+
+    /**
+     Enable or disable deferred decoding of character references (e.g. {@code &amp;}) in text and attribute values. (Off
+     by default.) When enabled, the parser only notes that a value contains a reference, and keeps its raw form; the
+     value is decoded when first accessed (e.g. by {@link org.jsoup.nodes.Attribute#getValue()} or {@link
+     org.jsoup.nodes.TextNode#text()}). That saves the decoding of values that are never read, such as tracking
+     parameters in links. Decoding a value later costs more than decoding it in the parse, so this suits Documents where
+     most values are not read. Errors in deferred references are not tracked.
+     @param lazyEntities true to defer decoding
+     @return this, for chaining
+     */
+    public Parser setLazyEntities(boolean lazyEntities) {
+        this.lazyEntities = lazyEntities;
+        return this;
+    }
+
+    /**
+     Get the names of the tags whose content is skipped.
+     @return the tag names (normal, lower-cased names), or an empty array if none
+     @see #setSkipContent(String...)
+     */
+    public String[] getSkipContent() {
+        return skipContent != null ? skipContent.clone() : new String[0];
+    }
+
+    /**
+     Set the tags whose content should be skipped. (None by default.) Each of these elements is added to the Document,
+     with its attributes, but not its content: its text and data are scanned past, rather than read into nodes, and the
+     elements within it are discarded when it closes. That saves the parse work and memory for content that won't be
+     used, such as {@code script}, {@code style}, or {@code svg}. Script and style content (and other raw text) is passed
+     over without being copied.
+     <p>The tags within a skipped element are still processed, so that it closes wherever a full parse would close it:
+     at its end tag, an ancestor's end tag, or a start tag that implies its end. The tree outside the skipped elements is
+     the same as a full parse. Only used by the HTML parser.</p>
+     @param tagNames the tag names; case insensitive. None to skip no content.
+     @return this, for chaining
+     @see #setRecordSkippedLength(boolean)
+     */
+    public Parser setSkipContent(String... tagNames) {
+        Validate.notNull(tagNames);
+        if (tagNames.length == 0) {
+            skipContent = null;
+            return this;
+        }
+        String[] names = new String[tagNames.length];
+        for (int i = 0; i < tagNames.length; i++) {
+            Validate.notEmpty(tagNames[i]);
+            names[i] = Normalizer.lowerCase(tagNames[i].trim());
+        }
+        Arrays.sort(names);
+        skipContent = names;
+        return this;
+    }
+
+    /**
+     Check if this parser records the length of skipped content.
+     @return true if recorded
+     @see #setRecordSkippedLength(boolean)
+     */
+    public boolean isRecordSkippedLength() {
+        return recordSkippedLength;
+    }
+
+    /**
+     Enable or disable recording the length of the content skipped in each element named in {@link
+     #setSkipContent(String...)}. (Off by default.) When enabled, the length can be read with {@link
+     #skippedLength(Element)}.
+     @param recordSkippedLength true to record the length
+     @return this, for chaining
+     */
+    public Parser setRecordSkippedLength(boolean recordSkippedLength) {
+        this.recordSkippedLength = recordSkippedLength;
+        return this;
+    }
+
+    /**
+     Get the length of the content that was skipped in an element, when parsed with {@link
+     #setSkipContent(String...)} and {@link #setRecordSkippedLength(boolean)}.
+     @param el the element
+     @return the number of chars of input that were skipped, from the end of the element's start tag to the start of the
+     tag that closed it (or the end of the input); or -1 if the element's content was not skipped (or its length was not
+     recorded)
+     */
+    public static int skippedLength(Element el) {
+        if (!NodeAccess.get().hasAttributes(el))
+            return -1; // vs allocating empty attributes to look in
+        String length = el.attributes().get(skippedLengthKey);
+        return length.isEmpty() ? -1 : Integer.parseInt(length);
+    }
+
+    boolean isSkipContent(String normalName) {
+        return skipContent != null && inSorted(normalName, skipContent);
+    }
+
+    static void setSkippedLength(Element el, int length) {
+        el.attributes().put(skippedLengthKey, String.valueOf(length));
+    }
+
     // static parse functions below
     /**
      * Parse HTML into a Document.
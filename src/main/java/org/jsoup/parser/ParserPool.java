@@ -0,0 +1,196 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.DataUtil;
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Document;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ A thread-safe pool of Parsers, that recycle their parse state between parses. Each parse creates a character reader
+ (with a 32KB buffer and a string cache) and a tokeniser (with its token and text buffers); a pooled Parser resets and
+ reuses those for its next parse, instead of allocating them again. That substantially reduces the allocation rate when
+ parsing many documents.
+ <p>Example:</p>
+ <pre>{@code
+ ParserPool pool = new ParserPool(Parser.htmlParser());
+ // on any thread:
+ Document doc = pool.parse(html, baseUri);
+ }</pre>
+ <p>Parsed Documents do not hold a reference to the pooled Parser or its buffers; their {@link Document#parser()} is an
+ independent copy with the same settings.</p>
+ <p>To parse a batch of files or streams on an {@link Executor}, use {@link #parseFiles} or {@link #parseStreams}.</p>
+ */
+public class ParserPool {
+    private final Parser template;
+    private final ArrayBlockingQueue<Parser> idle;
+    private final int maxIdle;
+
+    /**
+     Create a new ParserPool, holding up to two idle parsers per available processor.
+     @param template the parser to copy the tree builder type, settings, and error tracking from
+     */
+    public ParserPool(Parser template) {
+        this(template, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     Create a new ParserPool.
+     @param template the parser to copy the tree builder type, settings, and error tracking from
+     @param maxIdle the maximum number of idle parsers to retain; parsers released beyond this are discarded
+     */
+    public ParserPool(Parser template, int maxIdle) {
+        Validate.notNull(template);
+        Validate.isTrue(maxIdle > 0, "maxIdle must be > 0");
+        this.template = template.newInstance();
+        this.maxIdle = maxIdle;
+        idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     Borrow a Parser from the pool (or create a new one if none are idle). It must only be used by one thread at a time,
+     and should be {@link #release(Parser) released} back to the pool once done.
+     @return a recycling Parser
+     */
+    public Parser borrow() {
+        Parser parser = idle.poll();
+        if (parser == null) {
+            parser = template.newInstance();
+            parser.getTreeBuilder().recycle = true;
+        } else if (parser.isTrackErrors()) {
+            parser.setTrackErrors(parser.getErrors().getMaxSize()); // a fresh error list for each borrow
+        }
+        return parser;
+    }
+
+    /**
+     Return a borrowed Parser to the pool, for reuse.
+     @param parser the parser, as returned by {@link #borrow()}
+     */
+    public void release(Parser parser) {
+        Validate.notNull(parser);
+        TreeBuilder treeBuilder = parser.getTreeBuilder();
+        Validate.isTrue(treeBuilder.recycle, "Parser was not borrowed from a ParserPool");
+        treeBuilder.clearParseState(); // e.g. after a fragment parse, which does not complete the parse
+        idle.offer(parser);
+    }
+
+    /**
+     Parse the input with a pooled Parser.
+     @param input the input to parse
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @return the parsed Document
+     */
+    public Document parse(Reader input, String baseUri) {
+        Parser parser = borrow();
+        try {
+            return parser.parseInput(input, baseUri);
+        } finally {
+            release(parser);
+        }
+    }
+
+    /**
+     Parse the input with a pooled Parser.
+     @param html the input to parse
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @return the parsed Document
+     */
+    public Document parse(String html, String baseUri) {
+        return parse(new StringReader(html), baseUri);
+    }
+
+    /**
+     Parse a batch of files on the executor, each with a pooled Parser. Each file's charset is detected from its BOM or
+     meta charset, and its location is used as its base URI, as in {@link org.jsoup.Jsoup#parse(File, String)}.
+     <p>Up to {@code maxIdle} files (as set in the constructor) are parsed at once; this method blocks from submitting
+     more until one completes, so that a large batch does not queue up on the executor. A file that fails to parse is
+     reported to the handler, and the batch continues. This method returns once every file has been reported.</p>
+     <p>Tag and attribute names are interned in a table shared by all parses, so the documents share those strings.</p>
+     @param files the files to parse
+     @param executor the executor to parse on
+     @param handler the handler to receive each document or failure
+     @throws InterruptedException if interrupted while waiting to submit or complete the batch. Files already
+     submitted may still be parsed and reported.
+     */
+    public void parseFiles(Iterable<File> files, Executor executor, BatchHandler<File> handler) throws InterruptedException {
+        parseAll(files, executor, handler, new Loader<File>() {
+            @Override public Document load(File file, Parser parser) throws IOException {
+                return DataUtil.load(file, null, file.getAbsolutePath(), parser);
+            }
+        });
+    }
+
+    /**
+     Parse a batch of input streams on the executor, each with a pooled Parser. Each stream's charset is detected from
+     its BOM or meta charset, and it is closed once parsed. Otherwise, as {@link #parseFiles}.
+     @param streams the input streams to parse
+     @param executor the executor to parse on
+     @param handler the handler to receive each document or failure
+     @throws InterruptedException if interrupted while waiting to submit or complete the batch
+     */
+    public void parseStreams(Iterable<InputStream> streams, Executor executor, BatchHandler<InputStream> handler) throws InterruptedException {
+        parseAll(streams, executor, handler, new Loader<InputStream>() {
+            @Override public Document load(InputStream stream, Parser parser) throws IOException {
+                try {
+                    return DataUtil.load(stream, null, "", parser);
+                } finally {
+                    stream.close();
+                }
+            }
+        });
+    }
+
+    private interface Loader<T> {
+        Document load(T source, Parser parser) throws IOException;
+    }
+
+    private <T> void parseAll(Iterable<T> sources, Executor executor, final BatchHandler<T> handler, final Loader<T> loader) throws InterruptedException {
+        Validate.notNull(sources);
+        Validate.notNull(executor);
+        Validate.notNull(handler);
+        final Semaphore inFlight = new Semaphore(maxIdle); // limits the borrowed parsers to those the pool can retain
+
+        for (final T source : sources) {
+            inFlight.acquire();
+            try {
+                executor.execute(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            Document doc = null;
+                            Exception failure = null;
+                            Parser parser = borrow();
+                            try {
+                                doc = loader.load(source, parser);
+                            } catch (IOException | RuntimeException e) {
+                                failure = e;
+                            } finally {
+                                release(parser);
+                            }
+                            if (failure != null)
+                                handler.failure(source, failure);
+                            else
+                                handler.document(source, doc);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                handler.failure(source, e);
+            }
+        }
+
+        inFlight.acquire(maxIdle); // wait for the last to complete
+        inFlight.release(maxIdle);
+    }
+}
@@ -0,0 +1,252 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Document;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ A PushParser parses input that is pushed to it in chunks, as it arrives, rather than pulling it from a blocking {@link
+ Reader}. This allows parsing to be driven from a non-blocking I/O loop or an asynchronous HTTP client callback, without
+ dedicating a thread to each document.
+ <p>Each chunk is tokenised and tree built as far as is safe: the parser keeps a read-ahead window of input buffered
+ past the current position (so that lookahead, e.g. for character references, behaves the same as a regular parse), and
+ resumes when more input is fed. The remaining input is parsed by {@link #finish()}.</p>
+ <pre>{@code
+ PushParser push = new PushParser(Parser.htmlParser(), baseUri, StandardCharsets.UTF_8);
+ // in the I/O callback:
+ push.feed(byteBuffer);
+ // once the input has ended:
+ Document doc = push.finish();
+ }</pre>
+ <p>Byte input is decoded with the supplied charset. A leading byte-order-mark is skipped, but the charset is not
+ detected from it, or from a {@code <meta>} declaration. A PushParser is not thread-safe; feed it from one thread at a
+ time.</p>
+ */
+public class PushParser {
+    private final Parser parser;
+    private final TreeBuilder treeBuilder;
+    private final String baseUri;
+    private final Charset charset;
+    private final Pipe pipe = new Pipe();
+    private CharsetDecoder decoder;
+    private ByteBuffer leftover; // an incomplete multi-byte sequence, held until the next byte chunk
+    private Document doc;
+    private boolean done;
+
+    /**
+     Create a new PushParser, to parse character input.
+     @param parser the parser to use (e.g. {@link Parser#htmlParser()} or {@link Parser#xmlParser()})
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     */
+    public PushParser(Parser parser, String baseUri) {
+        this(parser, baseUri, Charset.forName("UTF-8"));
+    }
+
+    /**
+     Create a new PushParser, to parse byte input in the supplied charset (or character input).
+     @param parser the parser to use (e.g. {@link Parser#htmlParser()} or {@link Parser#xmlParser()})
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @param charset the charset to decode byte input with
+     */
+    public PushParser(Parser parser, String baseUri, Charset charset) {
+        Validate.notNull(parser);
+        Validate.notNull(baseUri);
+        Validate.notNull(charset);
+        this.parser = parser;
+        this.treeBuilder = parser.getTreeBuilder();
+        this.baseUri = baseUri;
+        this.charset = charset;
+    }
+
+    /**
+     Feed the next chunk of character input, and parse as much as can be.
+     @param chars the input. It is fully consumed; the buffer may be reused once this method returns.
+     @return this, for chaining
+     */
+    public PushParser feed(CharBuffer chars) {
+        Validate.isFalse(pipe.finished, "Can not feed input after finish()");
+        pipe.append(chars);
+        pump();
+        return this;
+    }
+
+    /**
+     Feed the next chunk of byte input, and parse as much as can be. A multi-byte character may be split across chunks.
+     @param bytes the input. It is fully consumed; the buffer may be reused once this method returns.
+     @return this, for chaining
+     */
+    public PushParser feed(ByteBuffer bytes) {
+        Validate.isFalse(pipe.finished, "Can not feed input after finish()");
+        if (decoder == null) {
+            decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        ByteBuffer in = bytes;
+        if (leftover != null) {
+            in = ByteBuffer.allocate(leftover.remaining() + bytes.remaining());
+            in.put(leftover).put(bytes).flip();
+            leftover = null;
+        }
+        decode(in, false);
+        if (in.hasRemaining()) {
+            leftover = ByteBuffer.allocate(in.remaining());
+            leftover.put(in).flip();
+        }
+        pump();
+        return this;
+    }
+
+    /**
+     Mark the end of the input, parse any that remains, and return the completed document.
+     @return the parsed document
+     */
+    public Document finish() {
+        if (!pipe.finished) {
+            if (decoder != null) {
+                decode(leftover != null ? leftover : ByteBuffer.allocate(0), true);
+                leftover = null;
+            }
+            pipe.finished = true;
+            pump();
+        }
+        return doc;
+    }
+
+    /**
+     Get the document being built. It will contain the input parsed so far, and is null until enough input has been
+     fed to start the parse.
+     @return the document, or null if not yet started
+     */
+    public Document document() {
+        return doc;
+    }
+
+    private void decode(ByteBuffer in, boolean endOfInput) {
+        CharBuffer out = CharBuffer.allocate((int) (in.remaining() * decoder.maxCharsPerByte()) + 16);
+        try {
+            CoderResult result = decoder.decode(in, out, endOfInput);
+            if (endOfInput && !result.isOverflow())
+                result = decoder.flush(out);
+            while (result.isOverflow()) { // only if the estimate was low
+                out.flip();
+                pipe.append(out);
+                out.clear();
+                result = endOfInput && !in.hasRemaining() ? decoder.flush(out) : decoder.decode(in, out, endOfInput);
+            }
+            if (result.isError())
+                result.throwException(); // not reached with REPLACE actions
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException(e);
+        }
+        out.flip();
+        pipe.append(out);
+    }
+
+    private void pump() {
+        if (done)
+            return;
+        if (doc == null) {
+            if (!pipe.finished && pipe.available() < CharacterReader.maxBufferLen)
+                return;
+            treeBuilder.initialiseParse(pipe, baseUri, parser);
+            doc = treeBuilder.doc;
+            if (decoder != null)
+                doc.outputSettings().charset(charset);
+        }
+
+        try {
+            while (pipe.finished || pipe.end - treeBuilder.reader.pos() >= CharacterReader.maxBufferLen) {
+                if (!treeBuilder.stepParser()) {
+                    done = true;
+                    treeBuilder.completeParse();
+                    return;
+                }
+            }
+        } catch (CharacterReader.InputPending e) {
+            // a token ran past the input we have so far; it is resumed when more is fed
+        }
+        treeBuilder.flushPendingText();
+    }
+
+    /**
+     A non-blocking Reader over the fed input. Reads return 0 when no input is ready, and -1 only once finished. Input
+     before the reader's mark (i.e. the start of the CharacterReader's buffer) has been consumed and is discarded.
+     */
+    private static final class Pipe extends Reader {
+        private char[] buf = new char[CharacterReader.maxBufferLen * 2];
+        private long offset; // the input position of buf[0]
+        private int pos, mark, len; // in buf
+        private long end; // total fed
+        boolean finished;
+
+        void append(CharBuffer chars) {
+            if (end == 0 && chars.hasRemaining() && chars.get(chars.position()) == '\uFEFF')
+                chars.get(); // skip a leading byte-order-mark
+            int add = chars.remaining();
+            if (len + add > buf.length) {
+                final int keep = Math.min(pos, mark);
+                final int size = len - keep;
+                char[] dest = size + add > buf.length ? new char[Math.max(buf.length * 2, size + add)] : buf;
+                System.arraycopy(buf, keep, dest, 0, size);
+                buf = dest;
+                offset += keep;
+                pos -= keep;
+                mark -= keep;
+                len = size;
+            }
+            chars.get(buf, len, add);
+            len += add;
+            end += add;
+        }
+
+        long available() {
+            return end - offset - pos;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int count) {
+            if (pos >= len)
+                return finished ? -1 : 0;
+            int read = Math.min(count, len - pos);
+            System.arraycopy(buf, pos, cbuf, off, read);
+            pos += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skip = (int) Math.min(n, len - pos);
+            pos += skip;
+            return skip;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) {
+            mark = pos;
+        }
+
+        @Override
+        public void reset() {
+            pos = mark;
+        }
+
+        @Override
+        public void close() {
+            buf = null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+
+/**
+ Connects a tree builder's node events to a {@link StreamHandler}. As each element is closed, it and any content
+ preceding it are reported to the handler and then detached from the document, so that the document only ever holds
+ the open elements and the content pending within them.
+ */
+final class StreamEmitter implements NodeVisitor {
+    private final StreamHandler handler;
+    private final TreeBuilder treeBuilder;
+    private final ArrayList<Element> started = new ArrayList<>(); // reported as started but not yet ended; outermost first
+    private final ArrayList<Element> path = new ArrayList<>(); // scratch ancestry, innermost first
+
+    private final NodeVisitor reporter = new NodeVisitor() {
+        public void head(Node node, int depth) {
+            if (node instanceof Element) {
+                Element el = (Element) node;
+                handler.startElement(el.tagName(), el.attributes());
+            } else if (node instanceof TextNode) {
+                handler.text(((TextNode) node).getWholeText());
+            } else if (node instanceof DataNode) {
+                handler.text(((DataNode) node).getWholeData());
+            } else if (node instanceof Comment) {
+                handler.comment(((Comment) node).getData());
+            }
+        }
+
+        public void tail(Node node, int depth) {
+            if (node instanceof Element)
+                handler.endElement(((Element) node).tagName());
+        }
+    };
+
+    StreamEmitter(StreamHandler handler, TreeBuilder treeBuilder) {
+        this.handler = handler;
+        this.treeBuilder = treeBuilder;
+    }
+
+    @Override
+    public void head(Node node, int depth) {
+        // nothing to report until the tree builder is done with the node, as it may yet be moved
+    }
+
+    @Override
+    public void tail(Node node, int depth) {
+        if (node instanceof Document || !(node instanceof Element))
+            return;
+        Element el = (Element) node;
+        if (holdsOpenElement(el))
+            return; // still contains an open element (e.g. mid adoption agency); reported later with its parent or a sibling
+
+        if (started.contains(el)) { // a descendant was already reported, so just complete it
+            openTo(el);
+            reportChildren(el);
+            started.remove(started.size() - 1);
+            handler.endElement(el.tagName());
+            el.remove();
+        } else if (el.parentNode() == null) {
+            // already reported and detached, but re-opened by the tree builder (e.g. head for a late link). Report any new content in place.
+            reportChildren(el);
+        } else {
+            openTo(el.parent());
+            reportPreceding(el);
+            NodeTraversor.traverse(reporter, el);
+            el.remove();
+        }
+    }
+
+    /**
+     Called once the parse is complete, to report any remaining content (e.g. trailing comments), and end any started
+     elements.
+     */
+    void finish(Document doc) {
+        openTo(doc);
+        reportChildren(doc);
+    }
+
+    private boolean holdsOpenElement(Element el) {
+        Element open = treeBuilder.currentElement();
+        while (open != null) {
+            if (open == el)
+                return true;
+            open = open.parent();
+        }
+        return false;
+    }
+
+    /**
+     Aligns the started elements with the ancestry of the target (inclusive), ending any that are no longer ancestors,
+     and starting new ones after reporting their preceding siblings.
+     */
+    private void openTo(Element target) {
+        path.clear();
+        Element root = target;
+        while (root != null && root.parentNode() != null) {
+            path.add(root);
+            root = root.parent(); // stops at the document, or at a detached element that has already been reported
+        }
+
+        final int size = path.size();
+        int common = 0;
+        while (common < started.size() && common < size && started.get(common) == path.get(size - 1 - common))
+            common++;
+
+        for (int i = started.size() - 1; i >= common; i--) {
+            Element ended = started.remove(i);
+            handler.endElement(ended.tagName());
+        }
+        if (root != null && !(root instanceof Document))
+            reportChildren(treeBuilder.doc); // re-opened after the document element completed; report content preceding it
+        for (int i = size - 1 - common; i >= 0; i--) {
+            Element el = path.get(i);
+            reportPreceding(el);
+            handler.startElement(el.tagName(), el.attributes());
+            started.add(el);
+        }
+        path.clear();
+    }
+
+    private void reportPreceding(Node node) {
+        Node parent = node.parentNode();
+        if (parent == null)
+            return;
+        while (node.siblingIndex() > 0) {
+            Node first = parent.childNode(0);
+            NodeTraversor.traverse(reporter, first);
+            first.remove();
+        }
+    }
+
+    private void reportChildren(Element el) {
+        while (el.childNodeSize() > 0) {
+            Node first = el.childNode(0);
+            NodeTraversor.traverse(reporter, first);
+            first.remove();
+        }
+    }
+}
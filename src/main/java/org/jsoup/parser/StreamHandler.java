@@ -0,0 +1,44 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Attributes;
+
+/**
+ A callback interface to receive parsed content as a stream of events, via
+ {@link Parser#parseInput(java.io.Reader, String, StreamHandler)}, instead of as a complete {@link
+ org.jsoup.nodes.Document}.
+ <p>The events describe the same corrected tree that the DOM parser would produce: implied elements (like {@code html},
+ {@code head}, {@code body} and {@code tbody}) are reported, and implicitly closed elements are ended in the right place.
+ Content is reported as soon as the tree builder has finished with it, so only the currently open elements (and any
+ content pending within them) are retained in memory.</p>
+ <p>Where the HTML tree construction rules would move content that has already been reported (for example, reparenting
+ misnested formatting elements through the adoption agency algorithm, or a late {@code <link>} being placed back into an
+ already closed {@code <head>}), the events reflect the position in which that content was completed, which may differ
+ from the DOM.</p>
+ */
+public interface StreamHandler {
+    /**
+     Called when an element is started.
+     @param name the element's tag name (case normalized according to the parser's settings)
+     @param attributes the element's attributes. Do not retain or modify.
+     */
+    void startElement(String name, Attributes attributes);
+
+    /**
+     Called when an element is ended, after all of its content has been reported.
+     @param name the element's tag name
+     */
+    void endElement(String name);
+
+    /**
+     Called for text content. Text from data elements (like {@code script} and {@code style}) and CDATA sections is also
+     reported here, as is; other text is reported in its decoded form.
+     @param text the text
+     */
+    void text(String text);
+
+    /**
+     Called for a comment.
+     @param data the comment's data
+     */
+    void comment(String data);
+}
@@ -0,0 +1,166 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeVisitor;
+
+import java.io.Closeable;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ A StreamParser provides a pull style parse, returning each {@link Element} as soon as the tree builder has completed
+ it (that is, when the element is popped off the stack of open elements, or on insert for void elements). Elements are
+ returned in document close order: children before their parents.
+ <p>As each element is returned, it has been fully built and attached to the {@link #document()} tree. To keep memory
+ use bounded to the depth of the current element rather than the size of the input, {@link Element#remove() remove}
+ elements once you have processed them (or use {@link Iterator#remove()}).</p>
+ <p>Example, to process the entries of a large feed:</p>
+ <pre>{@code
+ StreamParser streamer = new StreamParser(Parser.xmlParser()).parse(reader, baseUri);
+ Iterator<Element> it = streamer.iterator();
+ while (it.hasNext()) {
+     Element el = it.next();
+     if (el.normalName().equals("entry")) { ... ; it.remove(); }
+ }
+ }</pre>
+ <p>A StreamParser is not thread-safe, and may be used for one parse at a time.</p>
+ */
+public class StreamParser implements Closeable {
+    private final Parser parser;
+    private final TreeBuilder treeBuilder;
+    private final ArrayDeque<Element> completed = new ArrayDeque<>(); // closed elements, ready to return
+    private Document doc;
+    private boolean stopped = false; // input exhausted (or closed)
+
+    private final NodeVisitor closedListener = new NodeVisitor() {
+        public void head(Node node, int depth) {
+            // inserted; not ready until closed
+        }
+
+        public void tail(Node node, int depth) {
+            if (node instanceof Element && !(node instanceof Document))
+                completed.add((Element) node);
+        }
+    };
+
+    /**
+     Create a new StreamParser, using the supplied Parser (e.g. {@link Parser#htmlParser()} or {@link
+     Parser#xmlParser()}), and its settings.
+     @param parser the parser to use
+     */
+    public StreamParser(Parser parser) {
+        Validate.notNull(parser);
+        this.parser = parser;
+        treeBuilder = parser.getTreeBuilder();
+    }
+
+    /**
+     Start a new parse of the input. Any previous parse with this StreamParser is closed.
+     @param input the input to parse
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @return this, for chaining
+     */
+    public StreamParser parse(Reader input, String baseUri) {
+        close();
+        completed.clear();
+        treeBuilder.nodeListener = closedListener;
+        treeBuilder.initialiseParse(input, baseUri, parser);
+        doc = treeBuilder.doc;
+        stopped = false;
+        return this;
+    }
+
+    /**
+     Start a new parse of the input. Any previous parse with this StreamParser is closed.
+     @param input the input to parse
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @return this, for chaining
+     */
+    public StreamParser parse(String input, String baseUri) {
+        return parse(new StringReader(input), baseUri);
+    }
+
+    /**
+     Get the document being built. It will contain the elements parsed so far, less any that have been removed.
+     @return the document
+     */
+    public Document document() {
+        Validate.notNull(doc, "Must run parse() before calling.");
+        return doc;
+    }
+
+    /**
+     Parse the remaining input, and return the completed document.
+     @return the completed document
+     */
+    public Document complete() {
+        Document doc = document();
+        while (nextElement() != null)
+            completed.clear(); // not needed by the caller; keep the queue small
+        return doc;
+    }
+
+    /**
+     Get the next completed element, parsing as much input as needed.
+     @return the next completed element, or null if the input has been fully parsed.
+     */
+    public Element nextElement() {
+        Validate.notNull(doc, "Must run parse() before calling.");
+        while (completed.isEmpty() && !stopped) {
+            if (!treeBuilder.stepParser()) {
+                treeBuilder.closeRemaining(); // notifies of the elements still open at EOF
+                close();
+            }
+        }
+        return completed.poll();
+    }
+
+    /**
+     Get an iterator over the completed elements. The iterator parses input as needed to find the next element; {@link
+     Iterator#remove()} removes the last returned element from the document.
+     @return an iterator of completed elements, in close order
+     */
+    public Iterator<Element> iterator() {
+        return new Iterator<Element>() {
+            Element next;
+            Element last;
+
+            public boolean hasNext() {
+                if (next == null)
+                    next = nextElement();
+                return next != null;
+            }
+
+            public Element next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                last = next;
+                next = null;
+                return last;
+            }
+
+            public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                last.remove();
+                last = null;
+            }
+        };
+    }
+
+    /**
+     Stop the parse, and release the input reader. The document parsed so far remains available.
+     */
+    @Override
+    public void close() {
+        if (!stopped && doc != null)
+            treeBuilder.completeParse();
+        stopped = true;
+    }
+}
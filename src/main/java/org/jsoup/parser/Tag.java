@@ -3,8 +3,10 @@ package org.jsoup.parser;
 import org.jsoup.helper.Validate;
 import org.jsoup.internal.Normalizer;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * HTML Tag capabilities.
@@ -13,6 +15,10 @@ import java.util.Map;
  */
 public class Tag implements Cloneable {
     private static final Map<String, Tag> tags = new HashMap<>(); // map of known tags
+    private static final int knownIndexSize = 512; // power of two, at least 2x the known tag count
+    private static final Tag[] knownIndex = new Tag[knownIndexSize]; // open addressed, by case insensitive hash; read only after init
+    private static final int maxVariants = 1024;
+    private static final Map<String, Tag> variants = new ConcurrentHashMap<>(); // unknown tags, and case preserved known tags
 
     private String tagName;
     private String normalName; // always the lower case version of this tag, regardless of case preservation mode
@@ -23,6 +29,8 @@ public class Tag implements Cloneable {
     private boolean preserveWhitespace = false; // for pre, textarea, script etc
     private boolean formList = false; // a control that appears in forms: input, textarea, output etc
     private boolean formSubmit = false; // a control that can be submitted in a form: input etc
+    private volatile Tag selfClosingVariant; // the shared self closing version of this unknown tag
+    int categories; // HtmlTreeBuilder's tree building categories of this tag; 0 until first resolved
 
     private Tag(String tagName) {
         this.tagName = tagName;
@@ -49,7 +57,8 @@ public class Tag implements Cloneable {
     /**
      * Get a Tag by name. If not previously defined (unknown), returns a new generic tag, that can do anything.
      * <p>
-     * Pre-defined tags (P, DIV etc) will be ==, but unknown tags are not registered and will only .equals().
+     * Pre-defined tags (P, DIV etc) will be ==. Unknown tags are not registered, but are held in a bounded cache, so
+     * will generally be == too; they are only guaranteed to .equals().
      * </p>
      * 
      * @param tagName Name of tag, e.g. "p". Case insensitive.
@@ -59,25 +68,110 @@ public class Tag implements Cloneable {
     public static Tag valueOf(String tagName, ParseSettings settings) {
         Validate.notNull(tagName);
         Tag tag = tags.get(tagName);
+        if (tag != null)
+            return tag;
 
-        if (tag == null) {
-            tagName = settings.normalizeTag(tagName); // the name we'll use
-            Validate.notEmpty(tagName);
-            String normalName = Normalizer.lowerCase(tagName); // the lower-case name to get tag settings off
-            tag = tags.get(normalName);
+        tag = knownTag(tagName); // case insensitive, without normalizing the name to a new String
+        if (tag != null && !settings.preserveTagCase())
+            return tag;
 
+        tagName = settings.normalizeTag(tagName); // the name we'll use
+        Validate.notEmpty(tagName);
+        tag = tags.get(tagName);
+        if (tag == null) {
+            tag = variants.get(tagName);
             if (tag == null) {
-                // not defined: create default; go anywhere, do anything! (incl be inside a <p>)
-                tag = new Tag(tagName);
-                tag.isBlock = false;
-            } else if (settings.preserveTagCase() && !tagName.equals(normalName))  {
-                tag = tag.clone(); // get a new version vs the static one, so name update doesn't reset all
-                tag.tagName = tagName;
+                String normalName = Normalizer.lowerCase(tagName); // the lower-case name to get tag settings off
+                Tag known = tags.get(normalName);
+                if (known == null) {
+                    // not defined: create default; go anywhere, do anything! (incl be inside a <p>)
+                    tag = new Tag(tagName);
+                    tag.isBlock = false;
+                } else {
+                    tag = known.clone(); // get a new version vs the static one, so name update doesn't reset all
+                    tag.tagName = tagName;
+                }
+                cache(tag);
             }
         }
         return tag;
     }
 
+    private static void cache(Tag tag) {
+        if (variants.size() >= maxVariants)
+            variants.clear(); // bounds memory use when parsing content with many distinct tag names
+        variants.put(tag.tagName, tag);
+    }
+
+    /**
+     Get the known tag with the name in the char range, matching ASCII case insensitively, without creating a String.
+     @param buf the chars
+     @param start the start of the name
+     @param count the length of the name
+     @return the known tag, or null if the name is not a known tag
+     */
+    static Tag knownTag(final char[] buf, final int start, final int count) {
+        int hash = 0;
+        for (int i = start, end = start + count; i < end; i++)
+            hash = 31 * hash + lowerAscii(buf[i]);
+
+        for (int index = hash & knownIndexSize - 1; knownIndex[index] != null; index = index + 1 & knownIndexSize - 1) {
+            Tag tag = knownIndex[index];
+            String name = tag.tagName;
+            if (name.length() == count && regionMatches(buf, start, name))
+                return tag;
+        }
+        return null;
+    }
+
+    /**
+     Get the known tag with the name, matching ASCII case insensitively, without creating a String.
+     @param tagName the tag name
+     @return the known tag, or null if the name is not a known tag
+     */
+    static Tag knownTag(final String tagName) {
+        final int count = tagName.length();
+        int hash = 0;
+        for (int i = 0; i < count; i++)
+            hash = 31 * hash + lowerAscii(tagName.charAt(i));
+
+        for (int index = hash & knownIndexSize - 1; knownIndex[index] != null; index = index + 1 & knownIndexSize - 1) {
+            Tag tag = knownIndex[index];
+            String name = tag.tagName;
+            if (name.length() == count && regionMatches(tagName, name))
+                return tag;
+        }
+        return null;
+    }
+
+    /**
+     Get the lower case name of a tag name; for known tags, the registered name, without creating a new String.
+     */
+    static String normalName(String tagName) {
+        Tag known = knownTag(tagName);
+        return known != null ? known.normalName : Normalizer.lowerCase(tagName);
+    }
+
+    private static boolean regionMatches(final char[] buf, final int start, final String name) {
+        for (int i = 0, count = name.length(); i < count; i++) {
+            if (lowerAscii(buf[start + i]) != name.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(final String tagName, final String name) {
+        for (int i = 0, count = name.length(); i < count; i++) {
+            if (lowerAscii(tagName.charAt(i)) != name.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static char lowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c | 0x20) : c;
+    }
+
     /**
      * Get a Tag by name. If not previously defined (unknown), returns a new generic tag, that can do anything.
      * <p>
@@ -185,6 +279,23 @@ public class Tag implements Cloneable {
         return this;
     }
 
+    /**
+     Get the self closing version of this (unknown) tag. Unknown tags are shared, so a self closing instance is kept
+     separately, rather than updating this one.
+     */
+    Tag selfClosingVariant() {
+        if (selfClosing)
+            return this;
+        Tag variant = selfClosingVariant;
+        if (variant == null) {
+            variant = clone();
+            variant.selfClosingVariant = null;
+            variant.selfClosing = true;
+            selfClosingVariant = variant;
+        }
+        return variant;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -315,5 +426,16 @@ public class Tag implements Cloneable {
 
     private static void register(Tag tag) {
         tags.put(tag.tagName, tag);
+
+        int hash = tag.tagName.hashCode(); // names are lower case, so the same as the case insensitive hash
+        int index = hash & knownIndexSize - 1;
+        while (knownIndex[index] != null && !knownIndex[index].tagName.equals(tag.tagName))
+            index = index + 1 & knownIndexSize - 1;
+        knownIndex[index] = tag; // replaces a repeated definition, as the map does
+    }
+
+    // the names of the known tags, used to seed the shared NameTable
+    static Collection<String> knownTagNames() {
+        return tags.keySet();
     }
 }
@@ -1,10 +1,9 @@
 package org.jsoup.parser;
 
 import org.jsoup.helper.Validate;
+import org.jsoup.internal.NodeAccess;
 import org.jsoup.nodes.Attributes;
 
-import static org.jsoup.internal.Normalizer.lowerCase;
-
 /**
  * Parse tokens for the Tokeniser.
  */
@@ -77,11 +76,13 @@ abstract class Token {
         protected String normalName; // lc version of tag name, for case insensitive tree build
         private String pendingAttributeName; // attribute names are generally caught in one hop, not accumulated
         private StringBuilder pendingAttributeValue = new StringBuilder(); // but values are accumulated, from e.g. & in hrefs
-        private String pendingAttributeValueS; // try to get attr vals in one shot, vs Builder
+        private CharSequence pendingAttributeValueS; // try to get attr vals in one shot, vs Builder (may be an EncodedValue)
         private boolean hasEmptyAttributeValue = false; // distinguish boolean attribute from empty string value
         private boolean hasPendingAttributeValue = false;
+        private boolean pendingAttributeValueEncoded = false; // if the value holds a raw character reference
         boolean selfClosing = false;
         Attributes attributes; // start tags get attributes on construction. End tags get attributes on first new attribute (but only for parser convenience, not used).
+        ParseLimits limits; // if set (by the Tokeniser), bounds the attributes
 
         @Override
         Tag reset() {
@@ -92,6 +93,7 @@ abstract class Token {
             pendingAttributeValueS = null;
             hasEmptyAttributeValue = false;
             hasPendingAttributeValue = false;
+            pendingAttributeValueEncoded = false;
             selfClosing = false;
             attributes = null;
             return this;
@@ -105,24 +107,45 @@ abstract class Token {
                 // the tokeniser has skipped whitespace control chars, but trimming could collapse to empty for other control codes, so verify here
                 pendingAttributeName = pendingAttributeName.trim();
                 if (pendingAttributeName.length() > 0) {
-                    String value;
+                    CharSequence value;
                     if (hasPendingAttributeValue)
                         value = pendingAttributeValue.length() > 0 ? pendingAttributeValue.toString() : pendingAttributeValueS;
                     else if (hasEmptyAttributeValue)
                         value = "";
                     else
                         value = null;
+                    if (pendingAttributeValueEncoded && value != null)
+                        value = new EncodedValue(value.toString(), true);
                     // note that we add, not put. So that the first is kept, and rest are deduped, once in a context where case sensitivity is known (the appropriate tree builder).
-                    attributes.add(pendingAttributeName, value);
+                    if (limits == null || withinLimits(value))
+                        NodeAccess.get().addLazy(attributes, pendingAttributeName, value);
+                    else if (value != null && attributes.size() < limits.maxAttributes)
+                        NodeAccess.get().addLazy(attributes, pendingAttributeName, value.subSequence(0, limits.maxAttributeValueLength));
                 }
             }
             pendingAttributeName = null;
             hasEmptyAttributeValue = false;
             hasPendingAttributeValue = false;
+            pendingAttributeValueEncoded = false;
             reset(pendingAttributeValue);
             pendingAttributeValueS = null;
         }
 
+        // tests the next attribute against the limits; throws if exceeded and failing, or false to truncate
+        private boolean withinLimits(CharSequence value) {
+            if (attributes.size() >= limits.maxAttributes) {
+                if (limits.attributesAction == ParseLimits.Action.Fail)
+                    throw new ParseLimitException("Element exceeded the maximum of " + limits.maxAttributes + " attributes");
+                return false;
+            }
+            if (value != null && EncodedValue.isLongerThan(value, limits.maxAttributeValueLength)) {
+                if (limits.attributeValueAction == ParseLimits.Action.Fail)
+                    throw new ParseLimitException("Attribute value exceeded the maximum length of " + limits.maxAttributeValueLength);
+                return false;
+            }
+            return true;
+        }
+
         final void finaliseTag() {
             // finalises for emit
             if (pendingAttributeName != null) {
@@ -143,7 +166,7 @@ abstract class Token {
 
         final Tag name(String name) {
             tagName = name;
-            normalName = lowerCase(name);
+            normalName = org.jsoup.parser.Tag.normalName(name);
             return this;
         }
 
@@ -160,7 +183,7 @@ abstract class Token {
         // these appenders are rarely hit in not null state-- caused by null chars.
         final void appendTagName(String append) {
             tagName = tagName == null ? append : tagName.concat(append);
-            normalName = lowerCase(tagName);
+            normalName = org.jsoup.parser.Tag.normalName(tagName);
         }
 
         final void appendTagName(char append) {
@@ -175,7 +198,7 @@ abstract class Token {
             appendAttributeName(String.valueOf(append));
         }
 
-        final void appendAttributeValue(String append) {
+        final void appendAttributeValue(CharSequence append) {
             ensureAttributeValue();
             if (pendingAttributeValue.length() == 0) {
                 pendingAttributeValueS = append;
@@ -201,6 +224,11 @@ abstract class Token {
             }
         }
         
+        final void appendRawAttributeCharRef() {
+            appendAttributeValue('&');
+            pendingAttributeValueEncoded = true;
+        }
+
         final void setEmptyAttributeValue() {
             hasEmptyAttributeValue = true;
         }
@@ -231,7 +259,7 @@ abstract class Token {
         StartTag nameAttr(String name, Attributes attributes) {
             this.tagName = name;
             this.attributes = attributes;
-            normalName = lowerCase(tagName);
+            normalName = org.jsoup.parser.Tag.normalName(tagName);
             return this;
         }
 
@@ -309,7 +337,7 @@ abstract class Token {
     }
 
     static class Character extends Token {
-        private String data;
+        private CharSequence data; // a String, or an EncodedValue if entities are decoded lazily
 
         Character() {
             super();
@@ -322,12 +350,24 @@ abstract class Token {
             return this;
         }
 
-        Character data(String data) {
+        Character data(CharSequence data) {
             this.data = data;
             return this;
         }
 
+        /**
+         Get the data as a String, decoding it if held as an EncodedValue.
+         */
         String getData() {
+            if (!(data instanceof String) && data != null)
+                data = data.toString();
+            return (String) data;
+        }
+
+        /**
+         Get the data without materialising it, for insertion into a node or for testing its content.
+         */
+        CharSequence data() {
             return data;
         }
 
@@ -29,15 +29,19 @@ final class Tokeniser {
         Arrays.sort(notCharRefCharsSorted);
     }
 
-    private final CharacterReader reader; // html input
-    private final ParseErrorList errors; // errors found while tokenising
+    private CharacterReader reader; // html input
+    private ParseErrorList errors; // errors found while tokenising
 
     private TokeniserState state = TokeniserState.Data; // current tokenisation state
     private Token emitPending; // the token we are about to emit on next read
     private boolean isEmitPending = false;
-    private String charsString = null; // characters pending an emit. Will fall to charsBuilder if more than one
+    private CharSequence charsString = null; // characters pending an emit. Will fall to charsBuilder if more than one
     private StringBuilder charsBuilder = new StringBuilder(1024); // buffers characters to output as one token, if more than one emit per read
     StringBuilder dataBuffer = new StringBuilder(1024); // buffers data looking for </script>
+    boolean lazyEntities; // if character references in text and attribute values are kept raw (see Parser#setLazyEntities)
+    private boolean charsEncoded; // if the pending characters hold a raw character reference
+    boolean skipChars; // if character data is passed over, vs emitted, while the tree builder skips content
+    int tagStart; // the reader pos of the last tag's < (for the length of content skipped up to it)
 
     Token.Tag tagPending; // tag we are building up
     Token.StartTag startPending = new Token.StartTag();
@@ -46,14 +50,59 @@ final class Tokeniser {
     Token.Doctype doctypePending = new Token.Doctype(); // doctype building up
     Token.Comment commentPending = new Token.Comment(); // comment building up
     private String lastStartTag; // the last start tag emitted, to test appropriate end tag
+    private static final int deadlineCheckInterval = 512; // state steps between checks of the clock
+    private long deadline; // System.nanoTime() by which the parse must complete, if timeout is set
+    private int timeout; // millis; 0 if none
+    private int deadlineCountdown = Integer.MAX_VALUE; // steps until the next check
 
     Tokeniser(CharacterReader reader, ParseErrorList errors) {
         this.reader = reader;
         this.errors = errors;
     }
 
+    /**
+     Resets this Tokeniser for a new parse, reusing its buffers and pending tokens.
+     */
+    void reset(CharacterReader reader, ParseErrorList errors) {
+        this.reader = reader;
+        this.errors = errors;
+        state = TokeniserState.Data;
+        emitPending = null;
+        isEmitPending = false;
+        charsString = null;
+        charsEncoded = false;
+        skipChars = false;
+        Token.reset(charsBuilder);
+        Token.reset(dataBuffer);
+        tagPending = null;
+        startPending.reset();
+        endPending.reset();
+        charPending.reset();
+        doctypePending.reset();
+        commentPending.reset();
+        lastStartTag = null;
+    }
+
+    /**
+     Set the limits on the attributes of tags read by this Tokeniser, and start the parse timeout, if set.
+     @param limits the limits, or null if none
+     */
+    void limits(ParseLimits limits) {
+        startPending.limits = limits;
+        endPending.limits = limits;
+        timeout = limits != null ? limits.timeout : 0;
+        if (timeout > 0) {
+            deadline = System.nanoTime() + timeout * 1000000L;
+            deadlineCountdown = deadlineCheckInterval;
+        } else {
+            deadlineCountdown = Integer.MAX_VALUE;
+        }
+    }
+
     Token read() {
         while (!isEmitPending) {
+            if (--deadlineCountdown == 0)
+                checkDeadline();
             state.read(this, reader);
         }
 
@@ -63,9 +112,9 @@ final class Tokeniser {
             String str = cb.toString();
             cb.delete(0, cb.length());
             charsString = null;
-            return charPending.data(str);
+            return charPending.data(charsEncoded ? encodedChars(str) : str);
         } else if (charsString != null) {
-            Token token = charPending.data(charsString);
+            Token token = charPending.data(charsEncoded ? encodedChars(charsString.toString()) : charsString);
             charsString = null;
             return token;
         } else {
@@ -74,6 +123,30 @@ final class Tokeniser {
         }
     }
 
+    private EncodedValue encodedChars(String raw) {
+        charsEncoded = false;
+        return new EncodedValue(raw, false);
+    }
+
+    /**
+     Emits the & that starts a character reference in data, leaving the reference raw, to be decoded when the text is
+     first read.
+     */
+    void emitRawCharacterReference() {
+        emit('&');
+        charsEncoded = true;
+    }
+
+    private void checkDeadline() {
+        if (timeout == 0) {
+            deadlineCountdown = Integer.MAX_VALUE;
+            return;
+        }
+        if (System.nanoTime() - deadline > 0)
+            throw new ParseTimeoutException("Parse exceeded the timeout of " + timeout + "ms");
+        deadlineCountdown = deadlineCheckInterval;
+    }
+
     void emit(Token token) {
         Validate.isFalse(isEmitPending);
 
@@ -90,9 +163,11 @@ final class Tokeniser {
         }
     }
 
-    void emit(final String str) {
+    void emit(final CharSequence str) {
         // buffer strings up until last string token found, to emit only one token for a run of character refs etc.
         // does not set isEmitPending; read checks that
+        if (skipChars)
+            return;
         if (charsString == null) {
             charsString = str;
         }
@@ -106,6 +181,8 @@ final class Tokeniser {
 
     // variations to limit need to create temp strings
     void emit(final StringBuilder str) {
+        if (skipChars)
+            return;
         if (charsString == null) {
             charsString = str.toString();
         }
@@ -118,6 +195,8 @@ final class Tokeniser {
     }
 
     void emit(char c) {
+        if (skipChars)
+            return;
         if (charsString == null) {
             charsString = String.valueOf(c);
         }
@@ -197,11 +276,11 @@ final class Tokeniser {
                 return codeRef;
             }
         } else { // named
-            // get as many letters as possible, and look for matching entities.
-            String nameRef = reader.consumeLetterThenDigitSequence();
+            // get as many letters as possible, matched against the named entities as they are read.
+            int nameRef = reader.consumeNamedReference();
             boolean looksLegit = reader.matches(';');
             // found if a base named entity without a ;, or an extended entity with the ;.
-            boolean found = (Entities.isBaseNamedEntity(nameRef) || (Entities.isNamedEntity(nameRef) && looksLegit));
+            boolean found = Entities.isNamedReference(nameRef, !looksLegit);
 
             if (!found) {
                 reader.rewindToMark();
@@ -218,20 +297,18 @@ final class Tokeniser {
             reader.unmark();
             if (!reader.matchConsume(";"))
                 characterReferenceError("missing semicolon"); // missing semi
-            int numChars = Entities.codepointsForName(nameRef, multipointHolder);
+            int numChars = Entities.codepointsForNamedReference(nameRef, multipointHolder);
             if (numChars == 1) {
                 codeRef[0] = multipointHolder[0];
                 return codeRef;
-            } else if (numChars ==2) {
-                return multipointHolder;
             } else {
-                Validate.fail("Unexpected characters returned for " + nameRef);
                 return multipointHolder;
             }
         }
     }
 
     Token.Tag createTagPending(boolean start) {
+        tagStart = reader.pos() - (start ? 1 : 2); // called at the tag name's first letter, after the < or </
         tagPending = start ? startPending.reset() : endPending.reset();
         return tagPending;
     }
@@ -24,6 +24,10 @@ enum TokeniserState {
                     t.emit(new Token.EOF());
                     break;
                 default:
+                    if (t.skipChars) {
+                        r.skipData();
+                        break;
+                    }
                     String data = r.consumeData();
                     t.emit(data);
                     break;
@@ -33,7 +37,12 @@ enum TokeniserState {
     CharacterReferenceInData {
         // from & in data
         void read(Tokeniser t, CharacterReader r) {
-            readCharRef(t, Data);
+            if (t.lazyEntities) {
+                t.emitRawCharacterReference();
+                t.transition(Data);
+            } else {
+                readCharRef(t, Data);
+            }
         }
     },
     Rcdata {
@@ -55,6 +64,10 @@ enum TokeniserState {
                     t.emit(new Token.EOF());
                     break;
                 default:
+                    if (t.skipChars) {
+                        r.skipData();
+                        break;
+                    }
                     String data = r.consumeData();
                     t.emit(data);
                     break;
@@ -609,7 +622,7 @@ enum TokeniserState {
     AttributeName {
         // from before attribute name
         void read(Tokeniser t, CharacterReader r) {
-            String name = r.consumeToAnySorted(attributeNameCharsSorted);
+            String name = r.consumeAttributeName();
             t.tagPending.appendAttributeName(name);
 
             char c = r.consume();
@@ -758,11 +771,7 @@ enum TokeniserState {
                     t.transition(AfterAttributeValue_quoted);
                     break;
                 case '&':
-                    int[] ref = t.consumeCharacterReference('"', true);
-                    if (ref != null)
-                        t.tagPending.appendAttributeValue(ref);
-                    else
-                        t.tagPending.appendAttributeValue('&');
+                    readAttributeCharRef(t, '"');
                     break;
                 case nullChar:
                     t.error(this);
@@ -791,11 +800,7 @@ enum TokeniserState {
                     t.transition(AfterAttributeValue_quoted);
                     break;
                 case '&':
-                    int[] ref = t.consumeCharacterReference('\'', true);
-                    if (ref != null)
-                        t.tagPending.appendAttributeValue(ref);
-                    else
-                        t.tagPending.appendAttributeValue('&');
+                    readAttributeCharRef(t, '\'');
                     break;
                 case nullChar:
                     t.error(this);
@@ -826,11 +831,7 @@ enum TokeniserState {
                     t.transition(BeforeAttributeName);
                     break;
                 case '&':
-                    int[] ref = t.consumeCharacterReference('>', true);
-                    if (ref != null)
-                        t.tagPending.appendAttributeValue(ref);
-                    else
-                        t.tagPending.appendAttributeValue('&');
+                    readAttributeCharRef(t, '>');
                     break;
                 case '>':
                     t.emitTagPending();
@@ -1632,7 +1633,6 @@ enum TokeniserState {
 
     static final char nullChar = '\u0000';
     // char searches. must be sorted, used in inSorted. MUST update TokenisetStateTest if more arrays are added.
-    static final char[] attributeNameCharsSorted = new char[]{nullChar, '\t', '\n', '\f', '\r', ' ', '"', '\'', '/', '<', '=', '>'};
     static final char[] attributeValueUnquoted = new char[]{nullChar, '\t', '\n', '\f', '\r', ' ', '"', '&', '\'', '<', '=', '>', '`'};
 
     private static final char replacementChar = Tokeniser.replacementChar;
@@ -1698,6 +1698,10 @@ enum TokeniserState {
                 t.emit(new Token.EOF());
                 break;
             default:
+                if (t.skipChars) {
+                    r.skipRawData();
+                    break;
+                }
                 String data = r.consumeRawData();
                 t.emit(data);
                 break;
@@ -1713,6 +1717,18 @@ enum TokeniserState {
         t.transition(advance);
     }
 
+    private static void readAttributeCharRef(Tokeniser t, char additionalAllowedCharacter) {
+        if (t.lazyEntities) { // kept raw; the value is decoded when first read
+            t.tagPending.appendRawAttributeCharRef();
+            return;
+        }
+        int[] ref = t.consumeCharacterReference(additionalAllowedCharacter, true);
+        if (ref != null)
+            t.tagPending.appendAttributeValue(ref);
+        else
+            t.tagPending.appendAttributeValue('&');
+    }
+
     private static void readEndTag(Tokeniser t, CharacterReader r, TokeniserState a, TokeniserState b) {
         if (r.matchesLetter()) {
             t.createTagPending(false);
@@ -5,6 +5,7 @@ import org.jsoup.nodes.Attributes;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeVisitor;
 
 import java.io.Reader;
 import java.util.ArrayList;
@@ -22,53 +23,155 @@ abstract class TreeBuilder {
     protected String baseUri; // current base uri, for creating new elements
     protected Token currentToken; // currentToken is used only for error tracking.
     protected ParseSettings settings;
+    NodeVisitor nodeListener; // optional; notified (head) as nodes are inserted, and (tail) as elements are closed
+    boolean recycle; // if the reader and tokeniser are kept for the next parse, vs released (see ParserPool)
+    CharacterReader spareReader; // recycled from the last parse
+    Tokeniser spareTokeniser;
+    int maxStack; // the stack size past which new nodes are not nested further (see ParseLimits#maxDepth)
+    private ParseLimits limits; // null if none
+    private int maxNodes;
+    private int nodeCount; // nodes inserted in this parse
+    private boolean truncated; // if a limit has ended the parse early
 
     private Token.StartTag start = new Token.StartTag(); // start tag to process
     private Token.EndTag end  = new Token.EndTag();
     abstract ParseSettings defaultSettings();
 
+    /**
+     Create a new TreeBuilder of the same type, for an independent parse.
+     */
+    abstract TreeBuilder newInstance();
+
     protected void initialiseParse(Reader input, String baseUri, Parser parser) {
         Validate.notNull(input, "String input must not be null");
         Validate.notNull(baseUri, "BaseURI must not be null");
 
         doc = new Document(baseUri);
-        doc.parser(parser);
+        // a recycling parser is reused for later parses, so the document gets its own, that won't hold the buffers
+        doc.parser(recycle ? parser.copyForDocument() : parser);
         this.parser = parser;
         settings = parser.settings();
-        reader = new CharacterReader(input);
+        if (spareReader != null) {
+            reader = spareReader;
+            spareReader = null;
+            reader.reset(input);
+        } else {
+            reader = new CharacterReader(input);
+        }
         currentToken = null;
-        tokeniser = new Tokeniser(reader, parser.getErrors());
+        if (spareTokeniser != null) {
+            tokeniser = spareTokeniser;
+            spareTokeniser = null;
+            tokeniser.reset(reader, parser.getErrors());
+        } else {
+            tokeniser = new Tokeniser(reader, parser.getErrors());
+        }
         stack = new ArrayList<>(32);
         this.baseUri = baseUri;
+
+        tokeniser.lazyEntities = parser.isLazyEntities();
+        limits = parser.limits;
+        tokeniser.limits(limits);
+        maxStack = limits != null ? limits.maxDepth : Integer.MAX_VALUE;
+        maxNodes = limits != null ? limits.maxNodes : Integer.MAX_VALUE;
+        nodeCount = 0;
+        truncated = false;
+        if (limits != null && limits.maxInputChars != Integer.MAX_VALUE)
+            reader.limitInput(limits.maxInputChars, limits.inputCharsAction == ParseLimits.Action.Fail);
     }
 
     Document parse(Reader input, String baseUri, Parser parser) {
-        initialiseParse(input, baseUri, parser);
-        runParser();
+        try {
+            initialiseParse(input, baseUri, parser);
+            runParser();
+            return doc;
+        } finally {
+            // tidy up - as the Parser and Treebuilder are retained in document for settings / fragments
+            completeParse();
+        }
+    }
+
+    /**
+     Parse the input, notifying the listener as nodes are inserted ({@link NodeVisitor#head}) and as elements are
+     closed ({@link NodeVisitor#tail}). Once the input is exhausted, any elements still open are closed in stack order,
+     so that every inserted element receives a close notification.
+     */
+    Document parse(Reader input, String baseUri, Parser parser, NodeVisitor listener) {
+        nodeListener = listener;
+        try {
+            initialiseParse(input, baseUri, parser);
+            runParser();
+            closeRemaining();
+            return doc;
+        } finally {
+            completeParse();
+        }
+    }
+
+    /**
+     Closes any elements remaining on the stack, in stack order, notifying the node listener of each.
+     */
+    void closeRemaining() {
+        while (!stack.isEmpty())
+            pop();
+    }
 
-        // tidy up - as the Parser and Treebuilder are retained in document for settings / fragments
-        reader.close();
+    /**
+     Releases the input and parse state after a parse, so that the retained Document does not hold them. If recycling,
+     the reader and tokeniser are kept for the next parse, and the references to the parsed document are cleared.
+     */
+    void completeParse() {
+        flushPendingText();
+        if (reader != null) {
+            if (recycle) {
+                reader.closeInput();
+                spareReader = reader;
+                spareTokeniser = tokeniser;
+            } else {
+                reader.close();
+            }
+        }
+        nodeListener = null;
         reader = null;
         tokeniser = null;
         stack = null;
+        if (recycle)
+            clearParseState();
+    }
 
-        return doc;
+    /**
+     Clears the references to the last parse's document and nodes, so that a recycled parser waiting in a pool does not
+     keep them reachable. Called when a recycled parse completes, and when the parser is released to its pool.
+     */
+    void clearParseState() {
+        doc = null;
+        currentToken = null;
+        start.reset();
+        end.reset();
     }
 
+    /**
+     Sets any text that the tree builder is holding back (e.g. while compacting text) on its node, so that the document
+     is current. Called once the parse completes, and when a partial parse returns its document.
+     */
+    void flushPendingText() {}
+
     abstract List<Node> parseFragment(String inputFragment, Element context, String baseUri, Parser parser);
 
     protected void runParser() {
-        final Tokeniser tokeniser = this.tokeniser;
-        final Token.TokenType eof = Token.TokenType.EOF;
-
-        while (true) {
-            Token token = tokeniser.read();
-            process(token);
-            token.reset();
+        //noinspection StatementWithEmptyBody
+        while (stepParser()) {}
+    }
 
-            if (token.type == eof)
-                break;
-        }
+    /**
+     Reads and processes the next token.
+     @return false once the EOF token has been processed, true if there is more to parse.
+     */
+    boolean stepParser() {
+        final Token token = tokeniser.read();
+        process(token);
+        token.reset();
+        return token.type != Token.TokenType.EOF && !truncated;
     }
 
     protected abstract boolean process(Token token);
@@ -99,11 +202,69 @@ abstract class TreeBuilder {
     }
 
 
+    /**
+     Removes the last element from the stack of open elements, and notifies any node listener that it is closed.
+     @return the popped element
+     */
+    final Element pop() {
+        int size = stack.size();
+        Element el = stack.remove(size - 1);
+        onNodeClosed(el);
+        return el;
+    }
+
+    /**
+     Called after a node has been inserted into the document.
+     */
+    final void onNodeInserted(Node node) {
+        if (++nodeCount >= maxNodes) {
+            if (limits.nodesAction == ParseLimits.Action.Truncate)
+                truncated = true; // ends the parse after this token
+            else if (nodeCount > maxNodes)
+                throw new ParseLimitException("Document exceeded the maximum of " + maxNodes + " nodes");
+        }
+        if (nodeListener != null && !inSkippedContent(node))
+            nodeListener.head(node, stack.size());
+    }
+
+    /**
+     Called after an element has been removed from the stack of open elements (or an element that is never placed on
+     the stack, like a void element, has been inserted).
+     */
+    void onNodeClosed(Node node) {
+        if (nodeListener != null && !inSkippedContent(node))
+            nodeListener.tail(node, stack.size());
+    }
+
+    /**
+     Tests if the node is within an element whose content is skipped (see {@link Parser#setSkipContent(String...)}). Such
+     nodes are discarded once the element closes, so are not reported to the node listener.
+     */
+    boolean inSkippedContent(Node node) {
+        return false;
+    }
+
     protected Element currentElement() {
         int size = stack.size();
         return size > 0 ? stack.get(size-1) : null;
     }
 
+    /**
+     Gets the element to insert a new node into. That is the current element; unless the stack of open elements has
+     reached the depth limit, when new elements are inserted as siblings of the current element, so that the tree is not
+     nested further (or the parse fails, if so set).
+     @param isElement if the node to insert is an element (vs e.g. text, which always goes into the current element)
+     @return the element to insert into; or null if the stack is empty
+     */
+    final Element insertionParent(boolean isElement) {
+        final int size = stack.size();
+        if (!isElement || size < maxStack)
+            return size > 0 ? stack.get(size - 1) : null;
+        if (limits.depthAction == ParseLimits.Action.Fail)
+            throw new ParseLimitException("Element depth exceeded the maximum of " + limits.maxDepth);
+        return stack.get(maxStack - 2);
+    }
+
 
     /**
      * If the parser is tracking errors, and an error at the current position.
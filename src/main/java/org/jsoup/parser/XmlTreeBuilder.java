@@ -1,13 +1,13 @@
 package org.jsoup.parser;
 
 import org.jsoup.helper.Validate;
+import org.jsoup.internal.NodeAccess;
 import org.jsoup.nodes.CDataNode;
 import org.jsoup.nodes.Comment;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.DocumentType;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
-import org.jsoup.nodes.TextNode;
 import org.jsoup.nodes.XmlDeclaration;
 
 import java.io.Reader;
@@ -26,10 +26,17 @@ public class XmlTreeBuilder extends TreeBuilder {
         return ParseSettings.preserveCase;
     }
 
+    @Override
+    XmlTreeBuilder newInstance() {
+        return new XmlTreeBuilder();
+    }
+
     @Override
     protected void initialiseParse(Reader input, String baseUri, Parser parser) {
         super.initialiseParse(input, baseUri, parser);
         stack.add(doc); // place the document onto the stack. differs from HtmlTreeBuilder (not on stack)
+        if (maxStack != Integer.MAX_VALUE)
+            maxStack++; // so the depth limit counts elements, not the document
         doc.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
     }
 
@@ -69,7 +76,8 @@ public class XmlTreeBuilder extends TreeBuilder {
     }
 
     private void insertNode(Node node) {
-        currentElement().appendChild(node);
+        insertionParent(node instanceof Element).appendChild(node);
+        onNodeInserted(node);
     }
 
     Element insert(Token.StartTag startTag) {
@@ -77,12 +85,13 @@ public class XmlTreeBuilder extends TreeBuilder {
         // todo: wonder if for xml parsing, should treat all tags as unknown? because it's not html.
         if (startTag.attributes != null)
             startTag.attributes.deduplicate(settings);
+        if (startTag.isSelfClosing() && !tag.isKnownTag()) // unknown tag, remember this is self closing for output. see above.
+            tag = tag.selfClosingVariant();
 
         Element el = new Element(tag, null, settings.normalizeAttributes(startTag.attributes));
         insertNode(el);
         if (startTag.isSelfClosing()) {
-            if (!tag.isKnownTag()) // unknown tag, remember this is self closing for output. see above.
-                tag.setSelfClosing();
+            onNodeClosed(el); // not placed on the stack, so complete
         } else {
             stack.add(el);
         }
@@ -103,8 +112,7 @@ public class XmlTreeBuilder extends TreeBuilder {
     }
 
     void insert(Token.Character token) {
-        final String data = token.getData();
-        insertNode(token.isCData() ? new CDataNode(data) : new TextNode(data));
+        insertNode(token.isCData() ? new CDataNode(token.getData()) : NodeAccess.get().lazyTextNode(token.data()));
     }
 
     void insert(Token.Doctype d) {
@@ -133,9 +141,8 @@ public class XmlTreeBuilder extends TreeBuilder {
         if (firstFound == null)
             return; // not found, skip
 
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element next = stack.get(pos);
-            stack.remove(pos);
+        while (!stack.isEmpty()) {
+            Element next = pop();
             if (next == firstFound)
                 break;
         }
@@ -24,7 +24,12 @@ public class Collector {
      */
     public static Elements collect (Evaluator eval, Element root) {
         Elements elements = new Elements();
-        NodeTraversor.traverse(new Accumulator(root, elements, eval), root);
+        eval.startQuery(root);
+        try {
+            NodeTraversor.traverse(new Accumulator(root, elements, eval), root);
+        } finally {
+            eval.endQuery();
+        }
         return elements;
     }
 
@@ -54,7 +59,12 @@ public class Collector {
 
     public static Element findFirst(Evaluator eval, Element root) {
         FirstFinder finder = new FirstFinder(root, eval);
-        NodeTraversor.filter(finder, root);
+        eval.startQuery(root);
+        try {
+            NodeTraversor.filter(finder, root);
+        } finally {
+            eval.endQuery();
+        }
         return finder.match;
     }
 
@@ -6,13 +6,15 @@ import org.jsoup.nodes.Element;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 
 /**
  * Base combining (and, or) evaluator.
  */
 abstract class CombiningEvaluator extends Evaluator {
-    final ArrayList<Evaluator> evaluators;
+    final ArrayList<Evaluator> evaluators; // in query order, for toString and the query parser
     int num = 0;
+    int cost = 0;
 
     CombiningEvaluator() {
         super();
@@ -28,19 +30,46 @@ abstract class CombiningEvaluator extends Evaluator {
     Evaluator rightMostEvaluator() {
         return num > 0 ? evaluators.get(num - 1) : null;
     }
-    
-    void replaceRightMostEvaluator(Evaluator replacement) {
-        evaluators.set(num - 1, replacement);
-    }
 
     void updateNumEvaluators() {
         // used so we don't need to bash on size() for every match test
         num = evaluators.size();
+        long sum = 0;
+        for (Evaluator evaluator : evaluators)
+            sum += evaluator.cost();
+        cost = saturatedCost(sum);
+    }
+
+    @Override
+    protected int cost() {
+        return cost;
+    }
+
+    @Override
+    void startQuery(Element root) {
+        for (int i = 0; i < num; i++)
+            evaluators.get(i).startQuery(root);
+    }
+
+    @Override
+    void endQuery() {
+        for (int i = 0; i < num; i++)
+            evaluators.get(i).endQuery();
     }
 
     static final class And extends CombiningEvaluator {
+        private final Evaluator[] sorted; // in ascending cost order, to run the cheapest first
+
+        /*
+         An And is complete when created by the query parser (only the Or is later added to), so its evaluation order is
+         planned here: a stable sort by cost, so that e.g. in div:matches(foo.*bar)#main, the id and tag are tested before
+         the text is built and searched. The order of equal cost evaluators is kept.
+         */
         And(Collection<Evaluator> evaluators) {
             super(evaluators);
+            sorted = this.evaluators.toArray(new Evaluator[0]);
+            if (!hasSideEffects(this))
+                Arrays.sort(sorted, costOrder);
         }
 
         And(Evaluator... evaluators) {
@@ -49,8 +78,8 @@ abstract class CombiningEvaluator extends Evaluator {
 
         @Override
         public boolean matches(Element root, Element node) {
-            for (int i = 0; i < num; i++) {
-                Evaluator s = evaluators.get(i);
+            final Evaluator[] sorted = this.sorted;
+            for (Evaluator s : sorted) {
                 if (!s.matches(root, node))
                     return false;
             }
@@ -63,6 +92,29 @@ abstract class CombiningEvaluator extends Evaluator {
         }
     }
 
+    private static final Comparator<Evaluator> costOrder = new Comparator<Evaluator>() {
+        @Override
+        public int compare(Evaluator a, Evaluator b) {
+            final int x = a.cost(), y = b.cost(); // as Integer.compare (not in the Android API level we target); not x - y, which could overflow
+            return x < y ? -1 : (x == y ? 0 : 1);
+        }
+    };
+
+    // :matchText splits text nodes as it is tested, so the evaluators before it must keep limiting what it runs on
+    private static boolean hasSideEffects(Evaluator evaluator) {
+        if (evaluator instanceof Evaluator.MatchText)
+            return true;
+        if (evaluator instanceof StructuralEvaluator)
+            return hasSideEffects(((StructuralEvaluator) evaluator).evaluator);
+        if (evaluator instanceof CombiningEvaluator) {
+            for (Evaluator e : ((CombiningEvaluator) evaluator).evaluators) {
+                if (hasSideEffects(e))
+                    return true;
+            }
+        }
+        return false;
+    }
+
     static final class Or extends CombiningEvaluator {
         /**
          * Create a new Or evaluator. The initial evaluators are ANDed together and used as the first clause of the OR.
@@ -88,6 +140,11 @@ abstract class CombiningEvaluator extends Evaluator {
             updateNumEvaluators();
         }
 
+        void replaceRightMostEvaluator(Evaluator replacement) {
+            evaluators.set(num - 1, replacement);
+            updateNumEvaluators();
+        }
+
         @Override
         public boolean matches(Element root, Element node) {
             for (int i = 0; i < num; i++) {
@@ -35,11 +35,44 @@ public abstract class Evaluator {
      */
     public abstract boolean matches(Element root, Element element);
 
+    /**
+     * Get the relative cost of evaluating this evaluator, used to run the cheapest (and most selective) evaluators in a
+     * combined query first. E.g. a tag test is 1, and a text search is 10. Evaluators that are combined in a query must
+     * not have side effects, as they may be run in any order.
+     *
+     * @return the cost; 5 by default
+     */
+    protected int cost() {
+        return 5;
+    }
+
+    static final int MaxCost = Integer.MAX_VALUE / 16; // costs saturate here, so that sums and products can't overflow
+
+    /**
+     * Clamps a cost computed from other evaluators' costs (which may be anything, if custom) to within +/- MaxCost.
+     */
+    static int saturatedCost(long cost) {
+        return (int) Math.max(-MaxCost, Math.min(MaxCost, cost));
+    }
+
+    /**
+     * Called on the current thread before the Collector runs this evaluator over a tree, so that it may memoise results
+     * for the one query execution (over a tree that won't change). Combined and structural evaluators pass this on.
+     *
+     * @param root the root of the query execution
+     */
+    void startQuery(Element root) {}
+
+    /**
+     * Called on the current thread after the Collector's query execution, to release any memoised results.
+     */
+    void endQuery() {}
+
     /**
      * Evaluator for tag name
      */
     public static final class Tag extends Evaluator {
-        private String tagName;
+        final String tagName; // package open so that StreamSelector can inspect a query's subject
 
         public Tag(String tagName) {
             this.tagName = tagName;
@@ -50,6 +83,11 @@ public abstract class Evaluator {
             return (element.normalName().equals(tagName));
         }
 
+        @Override
+        protected int cost() {
+            return 1;
+        }
+
         @Override
         public String toString() {
             return String.format("%s", tagName);
@@ -72,6 +110,11 @@ public abstract class Evaluator {
             return (element.normalName().endsWith(tagName));
         }
 
+        @Override
+        protected int cost() {
+            return 1;
+        }
+
         @Override
         public String toString() {
             return String.format("%s", tagName);
@@ -93,6 +136,11 @@ public abstract class Evaluator {
             return (id.equals(element.id()));
         }
 
+        @Override
+        protected int cost() {
+            return 2;
+        }
+
         @Override
         public String toString() {
             return String.format("#%s", id);
@@ -115,6 +163,11 @@ public abstract class Evaluator {
             return (element.hasClass(className));
         }
 
+        @Override
+        protected int cost() {
+            return 6;
+        }
+
         @Override
         public String toString() {
             return String.format(".%s", className);
@@ -137,6 +190,11 @@ public abstract class Evaluator {
             return element.hasAttr(key);
         }
 
+        @Override
+        protected int cost() {
+            return 2;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s]", key);
@@ -165,6 +223,11 @@ public abstract class Evaluator {
             return false;
         }
 
+        @Override
+        protected int cost() {
+            return 6;
+        }
+
         @Override
         public String toString() {
             return String.format("[^%s]", keyPrefix);
@@ -185,6 +248,11 @@ public abstract class Evaluator {
             return element.hasAttr(key) && value.equalsIgnoreCase(element.attr(key).trim());
         }
 
+        @Override
+        protected int cost() {
+            return 3;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s=%s]", key, value);
@@ -205,6 +273,11 @@ public abstract class Evaluator {
             return !value.equalsIgnoreCase(element.attr(key));
         }
 
+        @Override
+        protected int cost() {
+            return 3;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s!=%s]", key, value);
@@ -225,6 +298,11 @@ public abstract class Evaluator {
             return element.hasAttr(key) && lowerCase(element.attr(key)).startsWith(value); // value is lower case already
         }
 
+        @Override
+        protected int cost() {
+            return 4;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s^=%s]", key, value);
@@ -245,6 +323,11 @@ public abstract class Evaluator {
             return element.hasAttr(key) && lowerCase(element.attr(key)).endsWith(value); // value is lower case
         }
 
+        @Override
+        protected int cost() {
+            return 4;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s$=%s]", key, value);
@@ -265,6 +348,11 @@ public abstract class Evaluator {
             return element.hasAttr(key) && lowerCase(element.attr(key)).contains(value); // value is lower case
         }
 
+        @Override
+        protected int cost() {
+            return 6;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s*=%s]", key, value);
@@ -289,6 +377,11 @@ public abstract class Evaluator {
             return element.hasAttr(key) && pattern.matcher(element.attr(key)).find();
         }
 
+        @Override
+        protected int cost() {
+            return 8;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s~=%s]", key, pattern.toString());
@@ -332,6 +425,11 @@ public abstract class Evaluator {
             return true;
         }
 
+        @Override
+        protected int cost() {
+            return 10;
+        }
+
         @Override
         public String toString() {
             return "*";
@@ -405,7 +503,7 @@ public abstract class Evaluator {
 		@Override
 		public boolean matches(Element root, Element element) {
 			final Element p = element.parent();
-			return p != null && !(p instanceof Document) && element.elementSiblingIndex() == p.children().size()-1;
+			return p != null && !(p instanceof Document) && element.elementSiblingIndex() == p.childrenSize()-1;
 		}
 
 		@Override
@@ -504,7 +602,7 @@ public abstract class Evaluator {
 
         @Override
         protected int calculatePosition(Element root, Element element) {
-        	return element.parent().children().size() - element.elementSiblingIndex();
+        	return element.parent().childrenSize() - element.elementSiblingIndex();
         }
 
 		@Override
@@ -523,13 +621,7 @@ public abstract class Evaluator {
     	}
 
 		protected int calculatePosition(Element root, Element element) {
-			int pos = 0;
-        	Elements family = element.parent().children();
-            for (Element el : family) {
-                if (el.tag().equals(element.tag())) pos++;
-                if (el == element) break;
-            }
-			return pos;
+			return element.elementSiblingIndexOfType() + 1;
 		}
 
 		@Override
@@ -546,12 +638,7 @@ public abstract class Evaluator {
 
 		@Override
 		protected int calculatePosition(Element root, Element element) {
-			int pos = 0;
-        	Elements family = element.parent().children();
-        	for (int i = element.elementSiblingIndex(); i < family.size(); i++) {
-        		if (family.get(i).tag().equals(element.tag())) pos++;
-        	}
-			return pos;
+			return element.elementSiblingCountOfType() - element.elementSiblingIndexOfType();
 		}
 
 		@Override
@@ -587,6 +674,11 @@ public abstract class Evaluator {
     		final Element r = root instanceof Document?root.child(0):root;
     		return element == r;
     	}
+    	@Override
+    	protected int cost() {
+    	    return 1;
+    	}
+
     	@Override
     	public String toString() {
     		return ":root";
@@ -597,7 +689,7 @@ public abstract class Evaluator {
 		@Override
 		public boolean matches(Element root, Element element) {
 			final Element p = element.parent();
-			return p!=null && !(p instanceof Document) && element.siblingElements().isEmpty();
+			return p!=null && !(p instanceof Document) && p.childrenSize() == 1;
 		}
     	@Override
     	public String toString() {
@@ -610,13 +702,7 @@ public abstract class Evaluator {
 		public boolean matches(Element root, Element element) {
 			final Element p = element.parent();
 			if (p==null || p instanceof Document) return false;
-
-			int pos = 0;
-        	Elements family = p.children();
-            for (Element el : family) {
-                if (el.tag().equals(element.tag())) pos++;
-            }
-        	return pos == 1;
+			return element.elementSiblingCountOfType() == 1;
 		}
     	@Override
     	public String toString() {
@@ -633,6 +719,11 @@ public abstract class Evaluator {
             }
         	return true;
 		}
+    	@Override
+    	protected int cost() {
+    	    return 4;
+    	}
+
     	@Override
     	public String toString() {
     		return ":empty";
@@ -667,6 +758,11 @@ public abstract class Evaluator {
             return lowerCase(element.text()).contains(searchText);
         }
 
+        @Override
+        protected int cost() {
+            return 10;
+        }
+
         @Override
         public String toString() {
             return String.format(":contains(%s)", searchText);
@@ -688,6 +784,11 @@ public abstract class Evaluator {
             return lowerCase(element.data()).contains(searchText);
         }
 
+        @Override
+        protected int cost() {
+            return 10;
+        }
+
         @Override
         public String toString() {
             return String.format(":containsData(%s)", searchText);
@@ -709,6 +810,11 @@ public abstract class Evaluator {
             return lowerCase(element.ownText()).contains(searchText);
         }
 
+        @Override
+        protected int cost() {
+            return 7;
+        }
+
         @Override
         public String toString() {
             return String.format(":containsOwn(%s)", searchText);
@@ -731,6 +837,11 @@ public abstract class Evaluator {
             return m.find();
         }
 
+        @Override
+        protected int cost() {
+            return 11;
+        }
+
         @Override
         public String toString() {
             return String.format(":matches(%s)", pattern);
@@ -753,6 +864,11 @@ public abstract class Evaluator {
             return m.find();
         }
 
+        @Override
+        protected int cost() {
+            return 8;
+        }
+
         @Override
         public String toString() {
             return String.format(":matchesOwn(%s)", pattern);
@@ -0,0 +1,92 @@
+package org.jsoup.select;
+
+import org.jsoup.helper.Validate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ A size bounded, least recently used cache of parsed queries, so that repeated selects with the same query string skip
+ the query parse. The parsed Evaluators are immutable, so one may be shared by any number of threads. Access is
+ synchronized; the lookup is small next to the select that follows it.
+ */
+final class QueryCache {
+    static final int DefaultMaxSize = 256;
+
+    private final Map<String, Evaluator> cache = new LinkedHashMap<String, Evaluator>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Evaluator> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private int maxSize = DefaultMaxSize;
+    private long hits;
+    private long misses;
+
+    /**
+     Get the parsed Evaluator for the query, from the cache if present, or else parsed and added.
+     @throws Selector.SelectorParseException if the query is invalid. Invalid queries are not cached.
+     */
+    Evaluator get(String query) {
+        synchronized (cache) {
+            Evaluator evaluator = cache.get(query);
+            if (evaluator != null) {
+                hits++;
+                return evaluator;
+            }
+            misses++;
+        }
+
+        Evaluator evaluator = QueryParser.parse(query); // outside the lock; a racing parse of the same query is harmless
+        synchronized (cache) {
+            if (maxSize > 0)
+                cache.put(query, evaluator);
+        }
+        return evaluator;
+    }
+
+    void maxSize(int maxSize) {
+        Validate.isTrue(maxSize >= 0, "Max size must be >= 0");
+        synchronized (cache) {
+            this.maxSize = maxSize;
+            Iterator<String> eldest = cache.keySet().iterator(); // in access order, so evicts the least recently used
+            while (cache.size() > maxSize) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    int maxSize() {
+        synchronized (cache) {
+            return maxSize;
+        }
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    long hits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    long misses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    void clear() {
+        synchronized (cache) {
+            cache.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+}
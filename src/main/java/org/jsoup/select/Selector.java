@@ -76,9 +76,67 @@ import java.util.IdentityHashMap;
  * @see Element#select(String)
  */
 public class Selector {
+    private static final QueryCache cache = new QueryCache();
+
     // not instantiable
     private Selector() {}
 
+    /**
+     Compile a CSS query into an Evaluator, which can be used to run the query many times, e.g. with {@link
+     Element#select(Evaluator)} or {@link Element#is(Evaluator)}. A compiled query is immutable, and is safe to share and
+     use across threads.
+     <p>Compiled queries are kept in a size bounded, least recently used cache, which the String select methods also use,
+     so a repeated query is only parsed once while it remains in the cache. See {@link #setCacheSize(int)}.</p>
+     @param query CSS query
+     @return the compiled query
+     @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     */
+    public static Evaluator compile(String query) {
+        return cache.get(query);
+    }
+
+    /**
+     Set the maximum number of compiled queries held in the cache. The default is {@value QueryCache#DefaultMaxSize}.
+     If the cache holds more, the least recently used are evicted.
+     @param maxSize the maximum size; 0 to disable the cache
+     */
+    public static void setCacheSize(int maxSize) {
+        cache.maxSize(maxSize);
+    }
+
+    /**
+     Get the maximum number of compiled queries held in the cache.
+     @return the maximum size
+     @see #setCacheSize(int)
+     */
+    public static int getCacheSize() {
+        return cache.maxSize();
+    }
+
+    /**
+     Get the number of queries found in the compiled query cache, since the cache was created or cleared.
+     @return the cache hit count
+     */
+    public static long cacheHits() {
+        return cache.hits();
+    }
+
+    /**
+     Get the number of queries not found in the compiled query cache (and so parsed), since the cache was created or
+     cleared.
+     @return the cache miss count
+     */
+    public static long cacheMisses() {
+        return cache.misses();
+    }
+
+    /**
+     Remove all compiled queries from the cache, and reset its hit and miss counts.
+     */
+    public static void clearCache() {
+        cache.clear();
+    }
+
     /**
      * Find elements matching selector.
      *
@@ -89,7 +147,7 @@ public class Selector {
      */
     public static Elements select(String query, Element root) {
         Validate.notEmpty(query);
-        return select(QueryParser.parse(query), root);
+        return select(compile(query), root);
     }
 
     /**
@@ -115,7 +173,7 @@ public class Selector {
     public static Elements select(String query, Iterable<Element> roots) {
         Validate.notEmpty(query);
         Validate.notNull(roots);
-        Evaluator evaluator = QueryParser.parse(query);
+        Evaluator evaluator = compile(query);
         ArrayList<Element> elements = new ArrayList<>();
         IdentityHashMap<Element, Boolean> seenElements = new IdentityHashMap<>();
         // dedupe elements by identity, not equality
@@ -157,7 +215,7 @@ public class Selector {
      */
     public static Element selectFirst(String cssQuery, Element root) {
         Validate.notEmpty(cssQuery);
-        return Collector.findFirst(QueryParser.parse(cssQuery), root);
+        return Collector.findFirst(compile(cssQuery), root);
     }
 
     public static class SelectorParseException extends IllegalStateException {
@@ -0,0 +1,368 @@
+package org.jsoup.select;
+
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.io.Closeable;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ A StreamSelector finds the elements matching a set of queries as the input is parsed, without building the full
+ document. Each element is tested against the queries when the parser completes it, so that a match is returned with all
+ of its content. Elements that don't match, and that can't be part of a later match, are removed from the document as
+ they complete.
+ <p>Example, to extract the links and the title from a page:</p>
+ <pre>{@code
+ Evaluator links = QueryParser.parse("a[href]");
+ Evaluator title = QueryParser.parse("title");
+ StreamSelector selector = new StreamSelector(Parser.htmlParser(), links, title).parse(reader, baseUri);
+ Element el;
+ while ((el = selector.selectNext()) != null) {
+     if (el.is(links)) ...
+ }
+ }</pre>
+ <p>Matches are returned in document close order (children before their parents), and are removed from the document
+ when the next match is requested, unless they are within an element that may yet match. Matched elements keep their
+ content once removed.</p>
+ <p>The document is only pruned when it can't change the result of a query. Queries that depend on an element's
+ siblings (e.g. {@code li + li}, {@code :nth-child(2)}, {@code :last-child}) retain the whole document. Queries that
+ depend on an element's content (e.g. {@code :has(img)}, {@code :contains(text)}) retain the content of any element that
+ may match until it completes, so restricting those by tag (e.g. {@code div:has(img)}) keeps memory use low. Where an
+ ancestor in the query depends on its content (e.g. {@code div:has(img) p}), the content of any element that may be that
+ ancestor is retained, and the elements within it are only tested once it completes.</p>
+ <p>A StreamSelector is not thread-safe, and may be used for one parse at a time.</p>
+ */
+public class StreamSelector implements Closeable {
+    private final StreamParser streamer;
+    private final Evaluator[] queries;
+    private final boolean[] contentIndependent; // if the query can be evaluated on an open element
+    private final Set<String> subjectTags; // the tags a content dependent query can match; null if any
+    private final Set<String> deferTags; // the tags of ancestors a query depends on the content of; null if any
+    private final boolean defer; // if any query depends on the content of an ancestor
+    private final boolean prune;
+    private final IdentityHashMap<Element, Boolean> mayMatch = new IdentityHashMap<>(); // memo for open elements
+    private final ArrayDeque<Element> completed = new ArrayDeque<>(); // completed elements, waiting on an open ancestor
+    private int ready; // the count of completed elements that may now be tested
+    private Element last; // the last returned match, to prune when the next is requested
+
+    /**
+     Create a new StreamSelector.
+     @param parser the parser to use (e.g. {@link Parser#htmlParser()} or {@link Parser#xmlParser()})
+     @param queries the queries to match, e.g. from {@link QueryParser#parse(String)}
+     */
+    public StreamSelector(Parser parser, Evaluator... queries) {
+        Validate.notNull(parser);
+        Validate.isTrue(queries.length > 0, "Must supply at least one query");
+        this.streamer = new StreamParser(parser);
+        this.queries = queries.clone();
+        contentIndependent = new boolean[queries.length];
+
+        Set<String> tags = new HashSet<>();
+        Set<String> ancestorTags = new HashSet<>();
+        boolean siblingDependent = false;
+        for (int i = 0; i < queries.length; i++) {
+            Evaluator query = queries[i];
+            Validate.notNull(query);
+            siblingDependent |= siblingDependent(query);
+            contentIndependent[i] = contentIndependent(query);
+            if (!contentIndependent[i] && tags != null) {
+                Set<String> subject = subjectTags(query);
+                if (subject != null)
+                    tags.addAll(subject);
+                else
+                    tags = null;
+            }
+            if (ancestorTags != null)
+                ancestorTags = contentAncestorTags(query, ancestorTags);
+        }
+        if (tags != null && ancestorTags != null)
+            tags.addAll(ancestorTags); // retain the content of possible ancestors, to test once they complete
+        subjectTags = ancestorTags == null ? null : tags;
+        deferTags = ancestorTags;
+        defer = ancestorTags == null || !ancestorTags.isEmpty();
+        prune = !siblingDependent;
+    }
+
+    /**
+     Create a new StreamSelector.
+     @param parser the parser to use (e.g. {@link Parser#htmlParser()} or {@link Parser#xmlParser()})
+     @param cssQueries the CSS queries to match
+     @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     */
+    public StreamSelector(Parser parser, String... cssQueries) {
+        this(parser, compile(cssQueries));
+    }
+
+    private static Evaluator[] compile(String[] cssQueries) {
+        Evaluator[] queries = new Evaluator[cssQueries.length];
+        for (int i = 0; i < cssQueries.length; i++) {
+            queries[i] = Selector.compile(cssQueries[i]);
+        }
+        return queries;
+    }
+
+    /**
+     Start a new parse of the input. Any previous parse with this StreamSelector is closed.
+     @param input the input to parse
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @return this, for chaining
+     */
+    public StreamSelector parse(Reader input, String baseUri) {
+        mayMatch.clear();
+        completed.clear();
+        ready = 0;
+        last = null;
+        streamer.parse(input, baseUri);
+        return this;
+    }
+
+    /**
+     Start a new parse of the input. Any previous parse with this StreamSelector is closed.
+     @param input the input to parse
+     @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     @return this, for chaining
+     */
+    public StreamSelector parse(String input, String baseUri) {
+        return parse(new StringReader(input), baseUri);
+    }
+
+    /**
+     Get the document being built. It will contain the open elements, and any completed content that may still be
+     needed by a query.
+     @return the document
+     */
+    public Document document() {
+        return streamer.document();
+    }
+
+    /**
+     Get the next element that matches any of the queries, parsing as much input as needed. Use {@link
+     Element#is(Evaluator)} to test which query the element matched.
+     @return the next matching element, complete with its content; or null if the input has been fully parsed.
+     */
+    public Element selectNext() {
+        if (last != null) {
+            prune(last);
+            last = null;
+        }
+
+        Element el;
+        while ((el = nextComplete()) != null) {
+            mayMatch.remove(el); // now complete, so tested directly
+            if (matches(el)) {
+                last = el;
+                return el;
+            }
+            prune(el);
+        }
+        mayMatch.clear();
+        return null;
+    }
+
+    /**
+     Parse the remaining input, and return all the (remaining) matching elements.
+     @return the matching elements, in close order
+     */
+    public Elements selectAll() {
+        Elements matches = new Elements();
+        Element el;
+        while ((el = selectNext()) != null)
+            matches.add(el);
+        return matches;
+    }
+
+    /**
+     Stop the parse, and release the input reader.
+     */
+    @Override
+    public void close() {
+        streamer.close();
+        mayMatch.clear();
+        completed.clear();
+        ready = 0;
+    }
+
+    /**
+     Gets the next completed element that can be tested. Elements within an open element whose content a query depends
+     on are held until that element completes, and then returned in their close order.
+     */
+    private Element nextComplete() {
+        if (ready == 0) {
+            Element el;
+            while ((el = streamer.nextElement()) != null) {
+                completed.add(el);
+                if (!deferred(el))
+                    break;
+            }
+            ready = completed.size(); // all, at the end of the input
+            if (ready == 0)
+                return null;
+        }
+        ready--;
+        return completed.poll();
+    }
+
+    /** Tests if the element is within an open element that a query depends on the content of. */
+    private boolean deferred(Element el) {
+        if (!defer)
+            return false;
+        for (Element parent = el.parent(); parent != null && !(parent instanceof Document); parent = parent.parent()) {
+            if (deferTags == null || deferTags.contains(parent.normalName()))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean matches(Element el) {
+        Element root = el.root();
+        if (!(root instanceof Document))
+            return false; // detached and re-closed by the tree builder; already tested
+        for (Evaluator query : queries) {
+            if (query.matches(root, el))
+                return true;
+        }
+        return false;
+    }
+
+    /** Removes the completed element, and the content preceding it, unless an open ancestor may need it. */
+    private void prune(Element el) {
+        if (!prune || el.parent() == null)
+            return;
+        for (Element parent = el.parent(); parent != null && !(parent instanceof Document); parent = parent.parent()) {
+            if (mayMatch(parent))
+                return;
+        }
+
+        Element parent = el.parent();
+        int i = 0;
+        while (i < el.siblingIndex()) {
+            Node prev = parent.childNode(i);
+            if (prev instanceof Element)
+                i++; // completed elements have been pruned already; this is e.g. a pending fostered table
+            else
+                prev.remove();
+        }
+        el.remove();
+    }
+
+    /** Tests if an open element may be matched by a query once it completes. */
+    private boolean mayMatch(Element el) {
+        Boolean may = mayMatch.get(el);
+        if (may == null) {
+            may = Boolean.FALSE;
+            for (int i = 0; i < queries.length; i++) {
+                if (contentIndependent[i] ? queries[i].matches(el.root(), el) :
+                    subjectTags == null || subjectTags.contains(el.normalName())) {
+                    may = Boolean.TRUE;
+                    break;
+                }
+            }
+            mayMatch.put(el, may);
+        }
+        return may;
+    }
+
+    /** Tests if the query may depend on elements that are not ancestors of the subject. */
+    private static boolean siblingDependent(Evaluator eval) {
+        if (eval instanceof CombiningEvaluator) {
+            for (Evaluator e : ((CombiningEvaluator) eval).evaluators) {
+                if (siblingDependent(e))
+                    return true;
+            }
+            return false;
+        }
+        if (eval instanceof StructuralEvaluator.PreviousSibling || eval instanceof StructuralEvaluator.ImmediatePreviousSibling)
+            return true;
+        if (eval instanceof StructuralEvaluator)
+            return siblingDependent(((StructuralEvaluator) eval).evaluator);
+        return !(isSimple(eval) || eval instanceof StructuralEvaluator.Root || eval instanceof Evaluator.IsRoot
+            || eval instanceof Evaluator.IsEmpty || isTextual(eval));
+    }
+
+    /** Tests if the query only depends on the element's tag and attributes, and its ancestors. */
+    private static boolean contentIndependent(Evaluator eval) {
+        if (eval instanceof CombiningEvaluator) {
+            for (Evaluator e : ((CombiningEvaluator) eval).evaluators) {
+                if (!contentIndependent(e))
+                    return false;
+            }
+            return true;
+        }
+        if (eval instanceof StructuralEvaluator.Not || eval instanceof StructuralEvaluator.Parent
+            || eval instanceof StructuralEvaluator.ImmediateParent)
+            return contentIndependent(((StructuralEvaluator) eval).evaluator);
+        return isSimple(eval) || eval instanceof StructuralEvaluator.Root || eval instanceof Evaluator.IsRoot;
+    }
+
+    /**
+     Adds the tags of the ancestors that the query depends on the content (or siblings) of, e.g. {@code div} in {@code
+     div:has(img) p}. Returns null if such an ancestor may have any tag.
+     */
+    private static Set<String> contentAncestorTags(Evaluator eval, Set<String> tags) {
+        if (eval instanceof CombiningEvaluator) {
+            for (Evaluator e : ((CombiningEvaluator) eval).evaluators) {
+                tags = contentAncestorTags(e, tags);
+                if (tags == null)
+                    return null;
+            }
+        } else if (eval instanceof StructuralEvaluator) {
+            Evaluator ancestor = ((StructuralEvaluator) eval).evaluator;
+            if ((eval instanceof StructuralEvaluator.Parent || eval instanceof StructuralEvaluator.ImmediateParent)
+                && !contentIndependent(ancestor)) {
+                Set<String> subject = siblingDependent(ancestor) ? null : subjectTags(ancestor);
+                if (subject == null)
+                    return null;
+                tags.addAll(subject);
+            }
+            return contentAncestorTags(ancestor, tags);
+        }
+        return tags;
+    }
+
+    /** Gets the tags that the query's subject must have, or null if it may be any. */
+    private static Set<String> subjectTags(Evaluator eval) {
+        if (eval instanceof Evaluator.Tag) {
+            Set<String> tags = new HashSet<>();
+            tags.add(((Evaluator.Tag) eval).tagName);
+            return tags;
+        } else if (eval instanceof CombiningEvaluator.And) {
+            for (Evaluator e : ((CombiningEvaluator) eval).evaluators) {
+                Set<String> tags = subjectTags(e);
+                if (tags != null)
+                    return tags;
+            }
+        } else if (eval instanceof CombiningEvaluator.Or) {
+            Set<String> tags = new HashSet<>();
+            for (Evaluator e : ((CombiningEvaluator) eval).evaluators) {
+                Set<String> subject = subjectTags(e);
+                if (subject == null)
+                    return null;
+                tags.addAll(subject);
+            }
+            return tags;
+        }
+        return null;
+    }
+
+    private static boolean isSimple(Evaluator eval) {
+        return eval instanceof Evaluator.Tag || eval instanceof Evaluator.TagEndsWith || eval instanceof Evaluator.Id
+            || eval instanceof Evaluator.Class || eval instanceof Evaluator.Attribute
+            || eval instanceof Evaluator.AttributeStarting || eval instanceof Evaluator.AttributeKeyPair
+            || eval instanceof Evaluator.AttributeWithValueMatching || eval instanceof Evaluator.AllElements;
+    }
+
+    private static boolean isTextual(Evaluator eval) {
+        return eval instanceof Evaluator.ContainsText || eval instanceof Evaluator.ContainsOwnText
+            || eval instanceof Evaluator.ContainsData || eval instanceof Evaluator.Matches
+            || eval instanceof Evaluator.MatchesOwn;
+    }
+}
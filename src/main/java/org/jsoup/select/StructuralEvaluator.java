@@ -1,6 +1,10 @@
 package org.jsoup.select;
 
 import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 /**
  * Base structural evaluator.
@@ -8,23 +12,124 @@ import org.jsoup.nodes.Element;
 abstract class StructuralEvaluator extends Evaluator {
     Evaluator evaluator;
 
+    @Override
+    void startQuery(Element root) {
+        evaluator.startQuery(root);
+    }
+
+    @Override
+    void endQuery() {
+        evaluator.endQuery();
+    }
+
     static class Root extends Evaluator {
         public boolean matches(Element root, Element element) {
             return root == element;
         }
+
+        @Override
+        protected int cost() {
+            return 1;
+        }
     }
 
     static class Has extends StructuralEvaluator {
+        /*
+         Searches the candidate's descendants in document order, and stops at the first match. Most searches end within
+         a few elements, so are run directly. In a query execution, a search that runs longer is rerun with a memo of the
+         result for each element whose subtree was searched, so that the candidates within it (which the Collector tests
+         next) reuse those answers, vs searching their subtrees again. That's only valid if the evaluator's result for a
+         descendant doesn't depend on which candidate is the root of the search.
+         */
+        private final boolean memoisable;
+        private final ThreadLocal<HasMemo> memo = new ThreadLocal<>();
+        private static final int DirectSearch = 64; // elements searched directly, before the memo is used
+        private static final int Found = 1, NotFound = 0, Unresolved = -1;
+
         public Has(Evaluator evaluator) {
             this.evaluator = evaluator;
+            memoisable = isRootIndependent(evaluator);
         }
 
         public boolean matches(Element root, Element element) {
-            for (Element e : element.getAllElements()) {
-                if (e != element && evaluator.matches(element, e))
-                    return true;
+            final HasMemo memo = memoisable ? this.memo.get() : null;
+            if (memo == null)
+                return search(evaluator, element, null, Integer.MAX_VALUE) == Found;
+
+            final Boolean known = memo.results.get(element);
+            if (known != null)
+                return known;
+            final int result = search(evaluator, element, null, DirectSearch);
+            if (result != Unresolved)
+                return result == Found;
+            return search(evaluator, element, memo.results, Integer.MAX_VALUE) == Found;
+        }
+
+        @Override
+        void startQuery(Element root) {
+            super.startQuery(root);
+            if (memoisable)
+                memo.set(new HasMemo(memo.get()));
+        }
+
+        @Override
+        void endQuery() {
+            super.endQuery();
+            if (memoisable) {
+                HasMemo current = memo.get();
+                if (current != null && current.outer != null)
+                    memo.set(current.outer);
+                else
+                    memo.remove();
             }
-            return false;
+        }
+
+        /**
+         Searches the element's descendants for one that matches the evaluator (with the element as root).
+         @param results memoised results of this search for elements, to use and add to; or null
+         @param budget the number of elements to test before giving up
+         @return Found, NotFound, or Unresolved if the budget ran out first
+         */
+        private static int search(Evaluator evaluator, Element element, IdentityHashMap<Element, Boolean> results, int budget) {
+            if (element.childNodeSize() == 0)
+                return NotFound;
+
+            Node node = element.childNode(0);
+            while (true) {
+                if (node instanceof Element) {
+                    if (budget-- == 0)
+                        return Unresolved;
+                    final Element el = (Element) node;
+                    final Boolean known = results != null ? results.get(el) : null;
+                    if (known == Boolean.TRUE || evaluator.matches(element, el)) {
+                        if (results != null) { // found, so each element from here up to the candidate has a match
+                            for (Element parent = el.parent(); parent != element; parent = parent.parent())
+                                results.put(parent, Boolean.TRUE);
+                            results.put(element, Boolean.TRUE);
+                        }
+                        return Found;
+                    }
+                    if (known == null && el.childNodeSize() > 0) { // descend
+                        node = el.childNode(0);
+                        continue;
+                    }
+                }
+
+                // to the next sibling; or up, where each subtree left has been searched without a match
+                while (node.nextSibling() == null) {
+                    node = node.parentNode();
+                    if (results != null)
+                        results.put((Element) node, Boolean.FALSE);
+                    if (node == element)
+                        return NotFound;
+                }
+                node = node.nextSibling();
+            }
+        }
+
+        @Override
+        protected int cost() {
+            return saturatedCost(10L * evaluator.cost());
         }
 
         @Override
@@ -42,6 +147,11 @@ abstract class StructuralEvaluator extends Evaluator {
             return !evaluator.matches(root, node);
         }
 
+        @Override
+        protected int cost() {
+            return saturatedCost(2L + evaluator.cost());
+        }
+
         @Override
         public String toString() {
             return String.format(":not%s", evaluator);
@@ -49,6 +159,16 @@ abstract class StructuralEvaluator extends Evaluator {
     }
 
     static class Parent extends StructuralEvaluator {
+        /*
+         In a query execution, the Collector tests each element in the tree, so a descendant query (a b) would walk up
+         the ancestors of each candidate; quadratic in deep trees. So the result for each ancestor (if it or any of its
+         ancestors matches) is memoised for the execution, and each walk stops at the first known ancestor. Only set
+         between the Collector's startQuery and endQuery, and only used for that root; is() and other direct tests (and
+         tests within a :has, which are relative to each candidate) walk the ancestors as before.
+         */
+        private final ThreadLocal<AncestorMemo> memo = new ThreadLocal<>();
+        private static final int DirectWalk = 8; // ancestors tested directly, before the memo is used
+
         public Parent(Evaluator evaluator) {
             this.evaluator = evaluator;
         }
@@ -57,8 +177,13 @@ abstract class StructuralEvaluator extends Evaluator {
             if (root == element)
                 return false;
 
+            final AncestorMemo memo = this.memo.get();
+            final boolean memoise = memo != null && memo.root == root;
             Element parent = element.parent();
+            int walked = 0;
             while (true) {
+                if (memoise && walked++ == DirectWalk) // most matches are near; memoise further up, for deep trees
+                    return memo.matches(evaluator, root, parent);
                 if (evaluator.matches(root, parent))
                     return true;
                 if (parent == root)
@@ -68,6 +193,28 @@ abstract class StructuralEvaluator extends Evaluator {
             return false;
         }
 
+        @Override
+        void startQuery(Element root) {
+            super.startQuery(root);
+            AncestorMemo current = memo.get();
+            memo.set(new AncestorMemo(root, current)); // current is set if this is a nested execution, from a custom evaluator
+        }
+
+        @Override
+        void endQuery() {
+            super.endQuery();
+            AncestorMemo current = memo.get();
+            if (current != null && current.outer != null)
+                memo.set(current.outer);
+            else
+                memo.remove();
+        }
+
+        @Override
+        protected int cost() {
+            return saturatedCost(2L * evaluator.cost());
+        }
+
         @Override
         public String toString() {
             return String.format(":parent%s", evaluator);
@@ -87,6 +234,11 @@ abstract class StructuralEvaluator extends Evaluator {
             return parent != null && evaluator.matches(root, parent);
         }
 
+        @Override
+        protected int cost() {
+            return saturatedCost(1L + evaluator.cost());
+        }
+
         @Override
         public String toString() {
             return String.format(":ImmediateParent%s", evaluator);
@@ -113,6 +265,11 @@ abstract class StructuralEvaluator extends Evaluator {
             return false;
         }
 
+        @Override
+        protected int cost() {
+            return saturatedCost(3L * evaluator.cost());
+        }
+
         @Override
         public String toString() {
             return String.format(":prev*%s", evaluator);
@@ -132,9 +289,86 @@ abstract class StructuralEvaluator extends Evaluator {
             return prev != null && evaluator.matches(root, prev);
         }
 
+        @Override
+        protected int cost() {
+            return saturatedCost(2L + evaluator.cost());
+        }
+
         @Override
         public String toString() {
             return String.format(":prev%s", evaluator);
         }
     }
+
+    /**
+     The memoised results of one Parent evaluator, in one query execution: for each element, if it or any of its
+     ancestors (up to the root) matched the evaluator.
+     */
+    private static final class AncestorMemo {
+        final Element root;
+        final AncestorMemo outer; // the memo of an enclosing execution on this thread, restored when this one ends
+        private final IdentityHashMap<Element, Boolean> results = new IdentityHashMap<>();
+        private final ArrayList<Element> path = new ArrayList<>(); // the elements walked, to record once resolved
+
+        AncestorMemo(Element root, AncestorMemo outer) {
+            this.root = root;
+            this.outer = outer;
+        }
+
+        boolean matches(Evaluator evaluator, Element root, Element parent) {
+            boolean found = false;
+            while (parent != null) {
+                Boolean known = results.get(parent);
+                if (known != null) {
+                    found = known;
+                    break;
+                }
+                path.add(parent);
+                if (evaluator.matches(root, parent)) {
+                    found = true;
+                    break;
+                }
+                if (parent == root)
+                    break;
+                parent = parent.parent();
+            }
+
+            final Boolean result = found;
+            for (int i = 0; i < path.size(); i++)
+                results.put(path.get(i), result);
+            path.clear();
+            return found;
+        }
+    }
+
+    /**
+     The memoised :has results of one Has evaluator, in one query execution.
+     */
+    private static final class HasMemo {
+        final HasMemo outer; // the memo of an enclosing execution on this thread, restored when this one ends
+        final IdentityHashMap<Element, Boolean> results = new IdentityHashMap<>();
+
+        HasMemo(HasMemo outer) {
+            this.outer = outer;
+        }
+    }
+
+    /**
+     Tests if an evaluator's result for an element is the same for any root, so may be reused across roots. The
+     built-in simple evaluators (other than :root, and :matchText, which changes the tree) are, as are combinations of
+     them; evaluators that walk to the root, and custom evaluators, are not assumed to be.
+     */
+    static boolean isRootIndependent(Evaluator evaluator) {
+        if (evaluator instanceof CombiningEvaluator) {
+            for (Evaluator e : ((CombiningEvaluator) evaluator).evaluators) {
+                if (!isRootIndependent(e))
+                    return false;
+            }
+            return true;
+        }
+        if (evaluator instanceof Not || evaluator instanceof Has)
+            return isRootIndependent(((StructuralEvaluator) evaluator).evaluator);
+        return evaluator.getClass().getEnclosingClass() == Evaluator.class
+            && !(evaluator instanceof Evaluator.IsRoot) && !(evaluator instanceof Evaluator.MatchText);
+    }
 }
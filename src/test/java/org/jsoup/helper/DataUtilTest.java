@@ -6,7 +6,9 @@ import org.jsoup.parser.Parser;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Random;
 
 import static org.jsoup.integration.ParseTest.getFile;
 import static org.junit.jupiter.api.Assertions.*;
@@ -130,6 +132,117 @@ public class DataUtilTest {
         assertEquals("Übergrößenträger", doc.body().text());
     }
 
+    private static String prescan(String html) {
+        return CharsetPrescanner.scan(ByteBuffer.wrap(html.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void prescansMetaCharset() {
+        assertEquals("iso-8859-1", prescan("<html><head><meta charset=iso-8859-1>"));
+        assertEquals("koi8-u", prescan("<META CHARSET = 'koi8-u' />"));
+        assertEquals("euc-kr", prescan("<meta http-equiv=Content-Type content=\"text/html; charset=euc-kr\">"));
+        assertEquals("euc-kr", prescan("<meta content='text/html; charset=euc-kr' http-equiv=' content-type '>"));
+        assertEquals("shift_jis", prescan("<meta charset=shift_jis charset=utf-8>"));
+        assertEquals("", prescan("<meta charset>"));
+        assertNull(prescan("<html><head><title>None</title></head><body><p>Hello"));
+        assertNull(prescan("<meta name=charset content='charset=euc-kr'>"));
+        assertNull(prescan("<meta http-equiv=refresh content='0; charset=euc-kr'>"));
+        assertNull(prescan("<metadata charset=euc-kr>"));
+    }
+
+    @Test
+    public void prescanSkipsCommentsAndOtherTags() {
+        assertEquals("koi8-u", prescan("<!-- <meta charset=iso-8859-1> --><meta charset=koi8-u>"));
+        assertEquals("koi8-u", prescan("<!--><meta charset=koi8-u>"));
+        assertEquals("koi8-u", prescan("<div title='<meta charset=iso-8859-1>'><meta charset=koi8-u>"));
+        assertEquals("koi8-u", prescan("<!DOCTYPE html><?php echo 1 ?></p x='<meta charset=iso-8859-1>'><meta charset=koi8-u>"));
+        assertNull(prescan("<!-- <meta charset=iso-8859-1>"));
+    }
+
+    @Test
+    public void prescanPrefersMetaOverXmlDeclaration() {
+        assertEquals("ISO-8859-1", prescan("<?xml version='1.0' encoding='ISO-8859-1'?><p>One"));
+        assertEquals("ISO-8859-1", prescan("\n <?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><p>One"));
+        assertEquals("koi8-u", prescan("<?xml version='1.0' encoding='ISO-8859-1'?><meta charset=koi8-u>"));
+        assertNull(prescan("<p>One</p><?xml version='1.0' encoding='ISO-8859-1'?>"));
+    }
+
+    @Test
+    public void prescanDoesNotMoveBuffer() {
+        ByteBuffer bytes = ByteBuffer.wrap("xx<meta charset=koi8-u>".getBytes(StandardCharsets.US_ASCII));
+        bytes.position(2);
+        assertEquals("koi8-u", CharsetPrescanner.scan(bytes));
+        assertEquals(2, bytes.position());
+    }
+
+    @Test
+    public void ignoresMetaCharsetInComment() throws IOException {
+        String html = "<html><head><!-- <meta charset=koi8-u> --><meta charset=iso-8859-1></head><body>Übergrößenträger";
+        Document doc = DataUtil.parseInputStream(stream(html, "iso-8859-1"), null, "http://example.com", Parser.htmlParser());
+        assertEquals("Übergrößenträger", doc.body().text());
+        assertEquals("ISO-8859-1", doc.charset().name());
+    }
+
+    // an input stream that returns at most chunk bytes per read, so that sequences straddle the reader's buffer fills
+    private static InputStream chunked(byte[] bytes, int chunk) {
+        return new ByteArrayInputStream(bytes) {
+            @Override public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+
+    private static String readAll(Reader reader, int readLen) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[readLen];
+        int read;
+        while ((read = reader.read(buf, 0, readLen)) != -1)
+            sb.append(buf, 0, read);
+        return sb.toString();
+    }
+
+    @Test
+    public void decodingReaderMatchesInputStreamReader() throws IOException {
+        Random random = new Random(2020);
+        String text = "Hello, wörld! Ελληνικά 한국어 😀 🎉 end";
+        for (int i = 0; i < 500; i++) {
+            byte[] bytes;
+            if (i % 2 == 0) {
+                bytes = text.getBytes(StandardCharsets.UTF_8);
+            } else { // malformed and truncated sequences
+                bytes = new byte[random.nextInt(64)];
+                random.nextBytes(bytes);
+            }
+            for (String charset : new String[]{"UTF-8", "ISO-8859-1", "windows-1252", "US-ASCII"}) {
+                String expected = readAll(new InputStreamReader(new ByteArrayInputStream(bytes), charset), 1024);
+                DecodingReader reader = DecodingReader.forCharset(chunked(bytes, 1 + i % 5), charset);
+                assertNotNull(reader);
+                assertEquals(expected, readAll(reader, 1 + i % 3), charset + " " + i);
+            }
+        }
+    }
+
+    @Test
+    public void decodingReaderOnlyHandlesUtf8AndSingleByteCharsets() {
+        InputStream in = stream("");
+        assertNotNull(DecodingReader.forCharset(in, "utf8"));
+        assertNotNull(DecodingReader.forCharset(in, "koi8-u"));
+        assertNull(DecodingReader.forCharset(in, "UTF-16"));
+        assertNull(DecodingReader.forCharset(in, "Shift_JIS"));
+        assertNull(DecodingReader.forCharset(in, "euc-kr"));
+        assertNull(DecodingReader.forCharset(in, "no-such-charset"));
+    }
+
+    @Test
+    public void parsesLargeUtf8Stream() throws IOException {
+        StringBuilder sb = new StringBuilder("<html><body>");
+        for (int i = 0; i < 5000; i++)
+            sb.append("<p>").append(i).append(" Übergrößenträger 😀 한국어</p>\n");
+        Document doc = DataUtil.parseInputStream(chunked(sb.toString().getBytes(StandardCharsets.UTF_8), 1000), null, "", Parser.htmlParser());
+        assertEquals(5000, doc.select("p").size());
+        assertEquals("4999 Übergrößenträger 😀 한국어", doc.select("p").last().text());
+    }
+
     @Test
     public void supportsBOMinFiles() throws IOException {
         // test files from http://www.i18nl10n.com/korean/utftest/
@@ -207,4 +320,20 @@ public class DataUtilTest {
         assertEquals("This is not gzipped", doc.title());
         assertEquals("And should still be readable.", doc.selectFirst("p").text());
     }
+
+    @Test
+    public void loadsMappedFiles() throws IOException {
+        String[] files = {"/htmltests/meta-charset-1.html", "/htmltests/xml-charset.xml", "/htmltests/gzip.html.gz",
+            "/htmltests/fake-gzip.html.gz", "/bomtests/bom_utf8.html", "/bomtests/bom_utf16le.html", "/htmltests/thumb.jpg"};
+        for (String file : files) {
+            File in = getFile(file);
+            Document loaded = Jsoup.parse(in, null, "http://example.com");
+            Document mapped = Jsoup.parseMapped(in, null, "http://example.com");
+            assertEquals(loaded.html(), mapped.html(), file);
+            assertEquals(loaded.charset(), mapped.charset(), file);
+        }
+
+        Document doc = Jsoup.parseMapped(getFile("/htmltests/gzip.html.z"), null, "");
+        assertEquals("This is a gzipped HTML file.", doc.selectFirst("p").text());
+    }
 }
@@ -0,0 +1,61 @@
+package org.jsoup.integration;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.Selector;
+
+/**
+ Times a descendant query over increasingly deep documents, with the Collector's query execution (which memoises the
+ ancestor tests), and with a direct test of each element (which walks all of its ancestors). The query execution should
+ grow linearly with the depth, and the direct test quadratically. Run from the IDE or command line; not a unit test.
+ */
+public class SelectorBenchmark {
+    public static void main(String[] args) {
+        final Evaluator query = Selector.compile("a.x b.y c.z");
+        for (int depth = 1000; depth <= 8000; depth *= 2) {
+            final Document doc = deepDocument(depth);
+            final int count = 20;
+            long collected = time(new Runnable() {
+                public void run() {
+                    if (doc.select(query).size() != depth(doc))
+                        throw new IllegalStateException();
+                }
+            }, count);
+            long direct = time(new Runnable() {
+                public void run() {
+                    int found = 0;
+                    for (Element el : doc.getAllElements()) {
+                        if (el.is(query))
+                            found++;
+                    }
+                    if (found != depth(doc))
+                        throw new IllegalStateException();
+                }
+            }, 1);
+            System.out.println(String.format("depth %5d: select %7.3f ms, direct %9.3f ms", depth,
+                collected / 1e6 / count, direct / 1e6));
+        }
+    }
+
+    // <a class=x><b class=y>, then a chain of div > c.z, each c.z a descendant match that must walk to the top for b.y
+    static Document deepDocument(int depth) {
+        Document doc = new Document("");
+        Element el = doc.appendElement("a").addClass("x").appendElement("b").addClass("y");
+        for (int i = 0; i < depth; i++)
+            el = el.appendElement("div").appendElement("c").addClass("z");
+        return doc;
+    }
+
+    private static int depth(Document doc) {
+        return doc.getElementsByClass("z").size();
+    }
+
+    private static long time(Runnable test, int count) {
+        test.run(); // warm up
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++)
+            test.run();
+        return System.nanoTime() - start;
+    }
+}
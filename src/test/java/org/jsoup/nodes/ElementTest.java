@@ -163,6 +163,48 @@ public class ElementTest {
         assertEquals(2, ps.get(2).elementSiblingIndex());
     }
 
+    @Test public void siblingIndexesFollowMutations() {
+        Document doc = Jsoup.parse("<div><p>1</p><span>2</span><p>3</p><p>4</p></div>");
+        Element div = doc.selectFirst("div");
+        Element p3 = div.child(2);
+        assertEquals(2, p3.elementSiblingIndex());
+        assertEquals(1, p3.elementSiblingIndexOfType());
+        assertEquals(3, p3.elementSiblingCountOfType());
+        assertEquals(0, div.child(1).elementSiblingIndexOfType());
+        assertEquals(1, div.child(1).elementSiblingCountOfType());
+
+        div.prependElement("span");
+        div.child(1).remove(); // the first p
+        assertEquals(2, p3.elementSiblingIndex());
+        assertEquals(0, p3.elementSiblingIndexOfType());
+        assertEquals(2, p3.elementSiblingCountOfType());
+        assertEquals(1, div.child(1).elementSiblingIndexOfType()); // the second span
+        assertEquals("4", p3.nextElementSibling().text());
+        assertEquals("2", p3.previousElementSibling().text());
+
+        div.appendChild(p3); // moves it to the end
+        assertEquals(3, p3.elementSiblingIndex());
+        assertEquals(1, p3.elementSiblingIndexOfType());
+        assertEquals("3", div.select("p:last-of-type").text());
+        assertEquals("4", div.select("p:nth-of-type(1)").text());
+        assertEquals("4", div.select("p:nth-last-child(2)").text());
+
+        Document renamed = Jsoup.parse("<div><p>1</p><p>2</p><p>3</p></div>");
+        Element renamedDiv = renamed.selectFirst("div");
+        assertEquals("3", renamedDiv.select("p:last-of-type").text());
+        renamedDiv.child(2).tagName("span");
+        assertEquals("2", renamedDiv.select("p:last-of-type").text());
+        assertEquals("3", renamedDiv.select("span:only-of-type").text());
+        assertEquals("2", renamedDiv.select("p:nth-last-of-type(1)").text());
+        assertEquals(1, renamedDiv.child(1).elementSiblingIndexOfType());
+        assertEquals(2, renamedDiv.child(1).elementSiblingCountOfType());
+
+        Element orphan = new Element("p");
+        assertEquals(0, orphan.elementSiblingIndex());
+        assertEquals(0, orphan.elementSiblingIndexOfType());
+        assertEquals(1, orphan.elementSiblingCountOfType());
+    }
+
     @Test public void testElementSiblingIndexSameContent() {
         Document doc = Jsoup.parse("<div><p>One</p>...<p>One</p>...<p>One</p>");
         Elements ps = doc.select("p");
@@ -5,7 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.jsoup.nodes.Document.OutputSettings;
 import static org.jsoup.nodes.Entities.EscapeMode.*;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class EntitiesTest {
     @Test public void escape() {
@@ -150,4 +150,33 @@ public class EntitiesTest {
         doc.outputSettings().escapeMode(xhtml);
         assertEquals("<a title=\"&lt;p>One&lt;/p>\">One</a>", element.outerHtml());
     }
+
+    @Test public void namedReferenceTrieMatchesNames() {
+        String[] points = EntitiesData.fullPoints.split("&");
+        assertEquals(2125, points.length);
+        for (String point : points) {
+            String name = point.substring(0, point.indexOf('='));
+            int node = 0;
+            for (int i = 0; i < name.length(); i++)
+                node = Entities.namedReferenceStep(node, name.charAt(i));
+            assertTrue(Entities.isNamedReference(node, false), name);
+            assertEquals(Entities.isBaseNamedEntity(name), Entities.isNamedReference(node, true), name);
+
+            int[] expected = new int[2];
+            int[] actual = new int[2];
+            int count = Entities.codepointsForName(name, expected);
+            assertEquals(count, Entities.codepointsForNamedReference(node, actual), name);
+            assertEquals(expected[0], actual[0], name);
+            if (count == 2)
+                assertEquals(expected[1], actual[1], name);
+        }
+
+        int not = Entities.namedReferenceStep(Entities.namedReferenceStep(0, 'n'), 'o'); // a prefix of not, notin
+        assertFalse(Entities.isNamedReference(not, false));
+        assertEquals(-1, Entities.namedReferenceStep(not, 'x'));
+        assertEquals(-1, Entities.namedReferenceStep(0, '1'));
+        assertEquals(-1, Entities.namedReferenceStep(0, '\u00e9'));
+        assertFalse(Entities.isNamedReference(-1, false));
+        assertEquals(0, Entities.codepointsForNamedReference(not, new int[2]));
+    }
 }
@@ -160,6 +160,34 @@ public class CharacterReaderTest {
         assertEquals(" qux", r.consumeToAny('&', ';'));
     }
 
+    @Test public void consumeToAnyNonAscii() {
+        CharacterReader r = new CharacterReader("One\u00bc|Two\u2014Three");
+        assertEquals("One\u00bc", r.consumeToAny('<', '|')); // \u00bc is not confused with '<'
+        r.advance();
+        assertEquals("Two", r.consumeToAny('\u2014'));
+        r.advance();
+        assertEquals("Three", r.consumeToAny('|', '\u2014'));
+    }
+
+    @Test public void scansToDelimitersAtEachOffset() {
+        // exercises both the four-char steps and the tail, and non-ASCII chars whose low 7 bits match a delimiter
+        String aliases = "\u00bc\u00a6\u0126\u00a2\u00a7\u00af\u00be\u0180"; // low bits: < & & " ' / > nul
+        for (int i = 0; i < 9; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < i; j++)
+                text.append(j % 2 == 0 ? 'a' : aliases.charAt(j % aliases.length()));
+
+            assertEquals(text.toString(), new CharacterReader(text + "<b").consumeData());
+            assertEquals(text.toString(), new CharacterReader(text + "&amp;").consumeData());
+            assertEquals(text.toString(), new CharacterReader(text + "\u0000").consumeRawData());
+            assertEquals(text.toString(), new CharacterReader(text + "'x").consumeAttributeQuoted(true));
+            assertEquals(text + "'x", new CharacterReader(text + "'x\"").consumeAttributeQuoted(false));
+            assertEquals(text.toString(), new CharacterReader(text + "/>").consumeTagName());
+            assertEquals(text.toString(), new CharacterReader(text + "\f").consumeTagName());
+            assertEquals(text.toString(), new CharacterReader(text.toString()).consumeData());
+        }
+    }
+
     @Test public void consumeLetterSequence() {
         CharacterReader r = new CharacterReader("One &bar; qux");
         assertEquals("One", r.consumeLetterSequence());
@@ -1,11 +1,14 @@
 package org.jsoup.parser;
 
 
+import org.jsoup.nodes.Element;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HtmlTreeBuilderTest {
     @Test
@@ -26,4 +29,20 @@ public class HtmlTreeBuilderTest {
             assertArrayEquals(array, copy);
         }
     }
+
+    @Test
+    public void resolvesTagCategories() {
+        Element table = new Element("table");
+        assertTrue(HtmlTreeBuilder.isIn(table, HtmlTreeBuilder.ScopeBoundary));
+        assertTrue(HtmlTreeBuilder.isIn(table, HtmlTreeBuilder.TableScopeBoundary | HtmlTreeBuilder.Special));
+        assertTrue(HtmlTreeBuilder.isIn(table, HtmlTreeBuilder.TableFoster));
+        assertFalse(HtmlTreeBuilder.isIn(table, HtmlTreeBuilder.ImpliedEndTag | HtmlTreeBuilder.TableRowContext));
+
+        // not a known Tag, but special in tree building
+        assertTrue(HtmlTreeBuilder.isIn(new Element("xmp"), HtmlTreeBuilder.Special));
+        // by normal name, so case preserved tags are the same
+        Element caseTr = new Element(Tag.valueOf("TR", ParseSettings.preserveCase), "");
+        assertTrue(HtmlTreeBuilder.isIn(caseTr, HtmlTreeBuilder.TableRowContext));
+        assertFalse(HtmlTreeBuilder.isIn(new Element("custom-tag"), HtmlTreeBuilder.ScopeBoundary | HtmlTreeBuilder.Special | HtmlTreeBuilder.ImpliedEndTag));
+    }
 }
@@ -0,0 +1,50 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameTableTest {
+
+    private static String intern(String name) {
+        char[] buf = (" " + name + " ").toCharArray();
+        return NameTable.intern(buf, 1, name.length());
+    }
+
+    @Test public void seededWithKnownTagNames() {
+        assertSame(Tag.valueOf("blockquote").getName(), intern("blockquote"));
+        assertSame(Tag.valueOf("a").getName(), intern("a"));
+    }
+
+    @Test public void internsOtherNames() {
+        String name = intern("data-custom");
+        assertEquals("data-custom", name);
+        assertSame(name, intern("data-custom"));
+        assertSame(intern("href"), intern("href"));
+        assertEquals("", intern(""));
+
+        String longName = "data-a-very-long-attribute-name-that-is-not-retained";
+        assertEquals(longName, intern(longName));
+        assertNotSame(intern(longName), intern(longName));
+    }
+
+    @Test public void sharesNamesAcrossDocuments() {
+        Document one = Jsoup.parse("<div class=one data-x=1><my-tag>One</my-tag></div>");
+        Document two = Jsoup.parse("<p class=two data-x=2><my-tag>Two</my-tag></p>");
+
+        Attribute[] oneAttrs = one.selectFirst("div").attributes().asList().toArray(new Attribute[0]);
+        Attribute[] twoAttrs = two.selectFirst("p").attributes().asList().toArray(new Attribute[0]);
+        assertSame(oneAttrs[0].getKey(), twoAttrs[0].getKey());
+        assertSame(oneAttrs[1].getKey(), twoAttrs[1].getKey());
+        assertSame(one.selectFirst("my-tag").tagName(), two.selectFirst("my-tag").tagName());
+    }
+
+    @Test public void parsesAttributeNames() {
+        Document doc = Jsoup.parse("<p One=1 two='2' three\"=3 four/five six<seven>");
+        assertEquals("<p one=\"1\" two=\"2\" three\"=\"3\" four five six<seven></p>",
+            doc.body().html());
+    }
+}
@@ -0,0 +1,196 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.jsoup.parser.ParseLimits.Action.Fail;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParseLimitsTest {
+
+    private static String nested(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            sb.append("<div id=").append(i).append(">");
+        sb.append("Deep");
+        return sb.toString();
+    }
+
+    private static int maxDepth(Document doc) {
+        int max = 0;
+        for (Element el : doc.getAllElements()) {
+            max = Math.max(max, el.parents().size());
+        }
+        return max; // html has no element parents, so is 0
+    }
+
+    // the value held for the attribute, without materialising it
+    private static Object heldValue(Attributes attributes, int index) throws ReflectiveOperationException {
+        Field vals = Attributes.class.getDeclaredField("vals");
+        vals.setAccessible(true);
+        return ((Object[]) vals.get(attributes))[index];
+    }
+
+    @Test public void limitsKeepLazyValuesEncoded() throws ReflectiveOperationException {
+        Parser parser = Parser.htmlParser().setLazyEntities(true);
+        parser.limits().maxAttributes(3).maxAttributeValueLength(12);
+        Element a = Jsoup.parse("<a href='?a=1&amp;b=2' title='&lt;&lt;&lt;&lt;' id='&lt;&lt;&lt;&lt;&lt;&lt;&lt;&lt;&lt;&lt;&lt;&lt;&lt;' class=x>",
+            "", parser).selectFirst("a");
+        Object href = heldValue(a.attributes(), 0);
+        assertTrue(href instanceof EncodedValue);
+        assertFalse(((EncodedValue) href).isDecoded()); // the raw form is within the limit
+        assertTrue(heldValue(a.attributes(), 1) instanceof EncodedValue); // decoded to test, as the raw form is not
+
+        assertEquals(3, a.attributes().size());
+        assertEquals("?a=1&b=2", a.attr("href"));
+        assertEquals("<<<<", a.attr("title"));
+        assertEquals("<<<<<<<<<<<<", a.attr("id")); // truncated
+        assertTrue(((EncodedValue) href).isDecoded());
+    }
+
+    @Test public void truncatesDepth() {
+        Parser parser = Parser.htmlParser();
+        parser.limits().maxDepth(10);
+        Document doc = Jsoup.parse(nested(1000), "", parser);
+
+        assertEquals(9, maxDepth(doc)); // html is depth 1; the deepest elements are at depth 10
+        Elements divs = doc.select("div");
+        assertEquals(1000, divs.size());
+        Element deepest = doc.getElementById("999");
+        assertEquals("Deep", deepest.text());
+        assertSame(doc.getElementById("8").parent(), deepest.parent()); // siblings past the limit
+    }
+
+    @Test public void failsOnDepth() {
+        Parser parser = Parser.htmlParser();
+        parser.limits().maxDepth(10, Fail);
+        ParseLimitException e = assertThrows(ParseLimitException.class, () -> Jsoup.parse(nested(1000), "", parser));
+        assertEquals("Element depth exceeded the maximum of 10", e.getMessage());
+
+        assertEquals(8, Jsoup.parse(nested(8), "", parser).select("div").size()); // html, body, and 8 divs fit
+    }
+
+    @Test public void truncatesXmlDepth() {
+        Parser parser = Parser.xmlParser();
+        parser.limits().maxDepth(3);
+        Document doc = Jsoup.parse("<a><b><c><d>One</d><e>Two</e></c></b></a>", "", parser);
+        doc.outputSettings().prettyPrint(false);
+        assertEquals("<a><b><c></c><d>One</d><e>Two</e></b></a>", doc.html());
+    }
+
+    @Test public void truncatesNodes() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            sb.append("<p>").append(i);
+
+        Parser parser = Parser.htmlParser();
+        parser.limits().maxNodes(50);
+        Document doc = Jsoup.parse(sb.toString(), "", parser);
+        int nodes = doc.select("p").size() * 2 + 3; // each p and its text, plus html, head, and body
+        assertTrue(nodes <= 51, "Nodes: " + nodes);
+        assertTrue(nodes >= 49, "Nodes: " + nodes);
+        assertEquals("0", doc.selectFirst("p").text());
+
+        parser.limits().maxNodes(50, Fail);
+        assertThrows(ParseLimitException.class, () -> Jsoup.parse(sb.toString(), "", parser));
+    }
+
+    @Test public void truncatesAttributes() {
+        StringBuilder sb = new StringBuilder("<div");
+        for (int i = 0; i < 100; i++)
+            sb.append(" a").append(i).append("=").append(i);
+        sb.append(">Text</div>");
+
+        Parser parser = Parser.htmlParser();
+        parser.limits().maxAttributes(5);
+        Element div = Jsoup.parse(sb.toString(), "", parser).selectFirst("div");
+        assertEquals(5, div.attributes().size());
+        assertEquals("4", div.attr("a4"));
+        assertFalse(div.hasAttr("a5"));
+        assertEquals("Text", div.text());
+
+        parser.limits().maxAttributes(5, Fail);
+        assertThrows(ParseLimitException.class, () -> Jsoup.parse(sb.toString(), "", parser));
+    }
+
+    @Test public void truncatesAttributeValues() {
+        String html = "<a href='/0123456789' title=short>Link</a>";
+        Parser parser = Parser.htmlParser();
+        parser.limits().maxAttributeValueLength(6);
+        Element a = Jsoup.parse(html, "", parser).selectFirst("a");
+        assertEquals("/01234", a.attr("href"));
+        assertEquals("short", a.attr("title"));
+
+        parser.limits().maxAttributeValueLength(6, Fail);
+        ParseLimitException e = assertThrows(ParseLimitException.class, () -> Jsoup.parse(html, "", parser));
+        assertEquals("Attribute value exceeded the maximum length of 6", e.getMessage());
+    }
+
+    @Test public void truncatesInput() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 100_000)
+            sb.append("<p>Lorem ipsum dolor sit amet.</p>\n");
+
+        Parser parser = Parser.htmlParser();
+        parser.limits().maxInputChars(40_000);
+        Document doc = Jsoup.parse(sb.toString(), "", parser);
+        int expected = 40_000 / "<p>Lorem ipsum dolor sit amet.</p>\n".length();
+        assertEquals(expected + 1, doc.select("p").size()); // the last is cut short
+        assertEquals("Lorem ipsum dolor sit amet.", doc.select("p").get(expected - 1).text());
+
+        parser.limits().maxInputChars(10);
+        assertEquals("Lorem i", Jsoup.parse(sb.toString(), "", parser).text());
+
+        parser.limits().maxInputChars(40_000, Fail);
+        assertThrows(ParseLimitException.class, () -> Jsoup.parse(sb.toString(), "", parser));
+        assertEquals(10, Jsoup.parse(sb.substring(0, 350), "", parser).select("p").size());
+    }
+
+    @Test public void failsOnTimeout() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++)
+            sb.append("<div><b>Text <i>").append(i).append("</b></i></div>\n");
+        String html = sb.toString();
+
+        Parser parser = Parser.htmlParser();
+        parser.limits().timeout(1);
+        long start = System.nanoTime();
+        ParseTimeoutException e = assertThrows(ParseTimeoutException.class, () -> Jsoup.parse(html, "", parser));
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertEquals("Parse exceeded the timeout of 1ms", e.getMessage());
+        assertTrue(millis < 2000, "Took " + millis + "ms");
+
+        parser.limits().timeout(0);
+        assertEquals(100_000, Jsoup.parse(html, "", parser).select("div").size());
+        parser.limits().timeout(60_000);
+        assertEquals(100_000, Jsoup.parse(html, "", parser).select("div").size());
+    }
+
+    @Test public void limitsAreCopiedToNewInstances() {
+        Parser parser = Parser.htmlParser();
+        parser.limits().maxAttributes(1);
+        Parser copy = parser.newInstance();
+        assertEquals(1, copy.limits().maxAttributes());
+        assertNotSame(parser.limits(), copy.limits());
+
+        ParserPool pool = new ParserPool(parser);
+        Element p = pool.parse("<p class=one id=two>", "").selectFirst("p");
+        assertEquals(1, p.attributes().size());
+    }
+
+    @Test public void noLimitsByDefault() {
+        ParseLimits limits = Parser.htmlParser().limits();
+        assertEquals(Integer.MAX_VALUE, limits.maxDepth());
+        assertEquals(Integer.MAX_VALUE, limits.maxNodes());
+        assertEquals(Integer.MAX_VALUE, limits.maxAttributes());
+        assertEquals(Integer.MAX_VALUE, limits.maxAttributeValueLength());
+        assertEquals(Integer.MAX_VALUE, limits.maxInputChars());
+        assertThrows(IllegalArgumentException.class, () -> limits.maxDepth(1));
+    }
+}
@@ -0,0 +1,233 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.integration.ParseTest;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParserPoolTest {
+
+    @Test public void recyclesReaderAndTokeniser() {
+        ParserPool pool = new ParserPool(Parser.htmlParser());
+        Parser parser = pool.borrow();
+        TreeBuilder treeBuilder = parser.getTreeBuilder();
+
+        Document doc = parser.parseInput("<p>One", "");
+        assertNull(treeBuilder.reader);
+        assertNull(treeBuilder.tokeniser);
+        CharacterReader reader = treeBuilder.spareReader;
+        Tokeniser tokeniser = treeBuilder.spareTokeniser;
+        assertNotNull(reader);
+        assertNotNull(tokeniser);
+        assertNotSame(parser, doc.parser());
+        assertNull(doc.parser().getTreeBuilder().spareReader);
+
+        parser.parseInput("<p>Two", "");
+        assertSame(reader, treeBuilder.spareReader);
+        assertSame(tokeniser, treeBuilder.spareTokeniser);
+
+        pool.release(parser);
+        assertSame(parser, pool.borrow());
+    }
+
+    @Test public void idleParsersDoNotRetainDocuments() {
+        ParserPool pool = new ParserPool(Parser.htmlParser(), 1);
+        Document doc = pool.parse("<html><head><title>One</title></head><body><form><b><table><tr><td>Two", "");
+        assertEquals("Two", doc.selectFirst("td").text());
+
+        Parser parser = pool.borrow();
+        HtmlTreeBuilder treeBuilder = (HtmlTreeBuilder) parser.getTreeBuilder();
+        assertNull(treeBuilder.doc);
+        assertNull(treeBuilder.currentToken);
+        assertNull(treeBuilder.getHeadElement());
+        assertNull(treeBuilder.getFormElement());
+
+        parser.parseFragmentInput("<p>Three", doc.body(), ""); // does not complete the parse, so cleared on release
+        assertNotNull(treeBuilder.doc);
+        pool.release(parser);
+        assertNull(treeBuilder.doc);
+        assertNull(treeBuilder.currentToken);
+    }
+
+    @Test public void noStateLeaksBetweenParses() {
+        ParserPool pool = new ParserPool(Parser.htmlParser(), 1);
+        String[] inputs = {
+            "<script>var a = '<p>", // ends in script data
+            "<p title='unterminated", // ends in an attribute value
+            "<!-- open comment",
+            "<p>One &amp",
+            "<textarea><b>Two",
+            "<p>Three</p>",
+        };
+        for (int i = 0; i < 2; i++) {
+            for (String html : inputs) {
+                assertEquals(Jsoup.parse(html).html(), pool.parse(html, "").html(), html);
+            }
+        }
+    }
+
+    @Test public void matchesUnpooledParse() throws IOException {
+        ParserPool pool = new ParserPool(Parser.htmlParser());
+        String[] files = {"/htmltests/news-com-au-home.html.gz", "/htmltests/google-ipod.html.gz", "/htmltests/xwiki-edit.html.gz"};
+        for (String file : files) {
+            String html = ParseTest.getFileAsString(ParseTest.getFile(file));
+            assertEquals(Jsoup.parse(html).html(), pool.parse(html, "").html(), file);
+        }
+
+        ParserPool xmlPool = new ParserPool(Parser.xmlParser());
+        String xml = "<feed><Entry id=1>One</Entry></feed>";
+        assertEquals(Jsoup.parse(xml, "", Parser.xmlParser()).html(), xmlPool.parse(xml, "").html());
+    }
+
+    @Test public void tracksErrorsPerBorrow() {
+        ParserPool pool = new ParserPool(Parser.htmlParser().setTrackErrors(10));
+        Parser parser = pool.borrow();
+        Document doc = parser.parseInput("<p>One</div>", "");
+        assertEquals(1, parser.getErrors().size());
+        assertSame(parser.getErrors(), doc.parser().getErrors());
+        pool.release(parser);
+
+        parser = pool.borrow();
+        assertEquals(0, parser.getErrors().size());
+        parser.parseInput("<p>Two", "");
+        assertEquals(0, parser.getErrors().size());
+    }
+
+    @Test public void canNotReleaseUnpooledParser() {
+        ParserPool pool = new ParserPool(Parser.htmlParser());
+        assertThrows(IllegalArgumentException.class, () -> pool.release(Parser.htmlParser()));
+    }
+
+    @Test public void isThreadSafe() throws Exception {
+        final ParserPool pool = new ParserPool(Parser.htmlParser(), 2);
+        final String html = ParseTest.getFileAsString(ParseTest.getFile("/htmltests/google-ipod.html.gz"));
+        final String expected = Jsoup.parse(html).html();
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10; j++) {
+                    if (!expected.equals(pool.parse(html, "").html()))
+                        failure.set("Mismatched parse");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertNull(failure.get());
+    }
+
+    @Test public void parsesFilesInParallel() throws Exception {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) { // each file is parsed four times
+            for (String file : new String[]{"/htmltests/news-com-au-home.html.gz", "/htmltests/google-ipod.html.gz",
+                "/htmltests/meta-charset-1.html", "/htmltests/gzip.html"})
+                files.add(ParseTest.getFile(file));
+            files.add(new File(ParseTest.getFile("/htmltests/gzip.html").getParentFile(), "no-such-file.html"));
+        }
+
+        final Map<File, Document> docs = new ConcurrentHashMap<>();
+        final Map<File, Exception> failures = new ConcurrentHashMap<>();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger concurrent = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            new ParserPool(Parser.htmlParser(), 3).parseFiles(files, executor, new BatchHandler<File>() {
+                @Override public void document(File source, Document doc) {
+                    maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    docs.put(source, doc);
+                    concurrent.decrementAndGet();
+                }
+
+                @Override public void failure(File source, Exception e) {
+                    failures.put(source, e);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(4, docs.size()); // keyed by file
+        assertEquals(1, failures.size());
+        assertTrue(failures.values().iterator().next() instanceof FileNotFoundException);
+        assertTrue(maxConcurrent.get() <= 3);
+        for (Map.Entry<File, Document> entry : docs.entrySet()) {
+            File file = entry.getKey();
+            assertEquals(Jsoup.parse(file, null).html(), entry.getValue().html(), file.getName());
+            assertEquals(file.getAbsolutePath(), entry.getValue().location());
+        }
+    }
+
+    @Test public void reportsEachStreamOnce() throws Exception {
+        List<InputStream> streams = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            streams.add(new ByteArrayInputStream(("<p>" + i).getBytes(StandardCharsets.UTF_8)));
+        streams.add(new InputStream() {
+            @Override public int read() throws IOException {
+                throw new IOException("Broken");
+            }
+        });
+
+        final List<String> texts = Collections.synchronizedList(new ArrayList<>());
+        final List<Exception> failures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new ParserPool(Parser.htmlParser(), 2).parseStreams(streams, executor, new BatchHandler<InputStream>() {
+                @Override public void document(InputStream source, Document doc) {
+                    texts.add(doc.text());
+                }
+
+                @Override public void failure(InputStream source, Exception e) {
+                    failures.add(e);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(50, texts.size());
+        assertTrue(texts.contains("0"));
+        assertTrue(texts.contains("49"));
+        assertEquals(1, failures.size());
+        assertEquals("Broken", failures.get(0).getMessage());
+    }
+
+    @Test public void reportsRejectedSources() throws Exception {
+        List<InputStream> streams = Collections.singletonList(new ByteArrayInputStream(new byte[0]));
+        List<Exception> failures = new ArrayList<>();
+        new ParserPool(Parser.htmlParser()).parseStreams(streams, command -> {
+            throw new RejectedExecutionException("Full");
+        }, new BatchHandler<InputStream>() {
+            @Override public void document(InputStream source, Document doc) {
+                fail();
+            }
+
+            @Override public void failure(InputStream source, Exception e) {
+                failures.add(e);
+            }
+        });
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0) instanceof RejectedExecutionException);
+    }
+}
@@ -1,11 +1,19 @@
 package org.jsoup.parser;
 
+import org.jsoup.Jsoup;
 import org.jsoup.MultiLocaleExtension.MultiLocaleTest;
 import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Document;
+import org.jsoup.internal.NodeAccess;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+import org.junit.jupiter.api.Test;
 
 import java.util.Locale;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ParserSettingsTest {
     @MultiLocaleTest
@@ -52,4 +60,92 @@ public class ParserSettingsTest {
 
         assertEquals("item", normalizedAttributes.asList().get(0).getKey());
     }
+
+    private static Document compactParse(String html) {
+        return Jsoup.parse(html, "", Parser.htmlParser().settings(new ParseSettings(false, false, true)));
+    }
+
+    @Test
+    public void compactTextDropsIgnorableWhitespace() {
+        String html = "<div>\n <p>One</p>\n <p><b>Two</b> <i>Three</i> </p>\n <ul>\n  <li>Four</li>\n  <li>Five</li>\n </ul>\n</div>\n" +
+            "<pre>\n  Six\n  </pre>\n<textarea>  </textarea>\n<pre><b>Seven</b>\n</pre><div>  <span>Eight</span></div>";
+        Document doc = compactParse(html);
+        Document full = Jsoup.parse(html);
+        assertEquals(full.text(), doc.text());
+
+        Element div = doc.selectFirst("div");
+        assertEquals(7, full.selectFirst("div").childNodeSize());
+        assertEquals(4, div.childNodeSize()); // whitespace at the start and between blocks is dropped; trailing is kept
+        assertEquals("p", div.child(0).normalName());
+        assertEquals(3, doc.selectFirst("ul").childNodeSize());
+
+        Element p = doc.select("p").get(1);
+        assertEquals(4, p.childNodeSize()); // the whitespace next to inline elements is kept
+        assertEquals("Two Three", p.text());
+        assertEquals("  Six\n  ", doc.selectFirst("pre").wholeText());
+        assertEquals("  ", doc.selectFirst("textarea").wholeText());
+        assertEquals("Seven\n", doc.select("pre").get(1).wholeText());
+        assertEquals(1, doc.select("div").get(1).childNodeSize());
+    }
+
+    @Test
+    public void compactTextMergesAdjacentText() {
+        // text after the body is closed is inserted back into it, next to existing text
+        String html = "<body>One</body></html>Two";
+        Document full = Jsoup.parse(html);
+        Document doc = compactParse(html);
+        assertEquals(2, full.body().textNodes().size());
+        assertEquals(1, doc.body().textNodes().size());
+        assertEquals("OneTwo", doc.body().textNodes().get(0).text());
+        assertEquals(full.text(), doc.text());
+        assertEquals(full.body().html(), doc.body().html());
+    }
+
+    @Test
+    public void compactTextMergesManyFragments() {
+        // each stray end tag splits the text into another character token
+        StringBuilder html = new StringBuilder("<p>");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            html.append("abcdefghij</x>");
+            text.append("abcdefghij");
+        }
+        html.append("<b>One</b>Two <i>Three</i>");
+
+        long start = System.currentTimeMillis();
+        Document doc = compactParse(html.toString());
+        Element p = doc.selectFirst("p");
+        assertEquals(4, p.childNodeSize());
+        assertEquals(text.toString(), p.textNodes().get(0).text());
+        assertEquals("Two ", p.textNodes().get(1).text());
+        assertTrue(System.currentTimeMillis() - start < 2000); // vs quadratic, when each token copied the merged text
+    }
+
+    @Test
+    public void compactTextKeepsLazyTextEncoded() {
+        Parser parser = Parser.htmlParser().settings(new ParseSettings(false, false, true)).setLazyEntities(true);
+        Document doc = Jsoup.parse("<div>\n<p>One &amp; two</p></div>\n<p>x</p>Five &amp; six</body></html>Three &lt; four", "", parser);
+        assertEquals(1, doc.body().textNodes().size()); // the whitespace before the p is dropped
+        TextNode text = doc.body().textNodes().get(0);
+        CharSequence value = NodeAccess.get().lazyText(text);
+        assertTrue(value instanceof MergedText);
+        assertFalse(((MergedText) value).isDecoded());
+        assertEquals("One & two", NodeAccess.get().lazyText(doc.selectFirst("p").textNodes().get(0)).toString());
+        assertEquals("x", doc.select("p").get(1).text());
+        assertEquals("Five & sixThree < four", text.text());
+        assertTrue(((MergedText) value).isDecoded());
+
+        // the raw forms are not joined, so a reference does not form across the boundary
+        String html = "<body>One &lt; a&</body></html>lt;";
+        assertEquals("One < a&lt;", Jsoup.parse(html, "", parser).body().text());
+        assertEquals(Jsoup.parse(html).body().text(), Jsoup.parse(html, "", parser).body().text());
+    }
+
+    @Test
+    public void compactTextIsOffByDefault() {
+        assertFalse(ParseSettings.htmlDefault.compactText());
+        assertFalse(new ParseSettings(true, true).compactText());
+        assertEquals(4, Jsoup.parse("<div>\n<p>One</p>\n<p>Two</p></div>").selectFirst("div").childNodeSize());
+        assertEquals(2, compactParse("<div>\n<p>One</p>\n<p>Two</p></div>").selectFirst("div").childNodeSize());
+    }
 }
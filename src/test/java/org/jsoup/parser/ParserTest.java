@@ -1,8 +1,18 @@
 package org.jsoup.parser;
 
+import org.jsoup.Jsoup;
+import org.jsoup.TextUtil;
+import org.jsoup.integration.ParseTest;
+import org.jsoup.internal.NodeAccess;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ParserTest {
 
@@ -22,4 +32,146 @@ public class ParserTest {
         String body = longBody.toString();
         assertEquals(body, Parser.unescapeEntities(body, false));
     }
+
+    @Test
+    public void lazyValuesCanBeModified() {
+        String html = "<p title='A &amp; B' class=x>One &amp; two<script>var a = 'some script';</script>";
+        Document doc = Jsoup.parse(html, "", Parser.htmlParser().setLazyEntities(true));
+        Element p = doc.selectFirst("p");
+        assertEquals(p.attributes().hashCode(), Jsoup.parse(html).selectFirst("p").attributes().hashCode());
+        assertEquals(Jsoup.parse(html).selectFirst("p").attributes(), p.attributes());
+        assertEquals("var a = 'some script';", doc.selectFirst("script").data());
+
+        TextNode text = (TextNode) p.childNode(0);
+        assertFalse(text.isBlank());
+        text.attr("foo", "bar"); // moves the value into attributes
+        assertEquals("One & two", text.text());
+        p.attr("title", "Changed");
+        assertEquals("Changed", p.attr("title"));
+        text.text("New");
+        assertEquals("<p title=\"Changed\" class=\"x\">New<script>var a = 'some script';</script></p>", p.outerHtml());
+    }
+
+    @Test
+    public void lazyEntitiesKeepsReferencesRaw() {
+        Tokeniser tokeniser = new Tokeniser(new CharacterReader("One &amp; two<a href='?a=1&amp;b=2' title=plain>"), ParseErrorList.noTracking());
+        tokeniser.lazyEntities = true;
+        CharSequence text = tokeniser.read().asCharacter().data();
+        assertTrue(text instanceof EncodedValue);
+        assertEquals("One & two", text.toString());
+
+        Token.StartTag tag = tokeniser.read().asStartTag();
+        assertEquals("?a=1&b=2", tag.attributes.get("href"));
+        assertEquals("plain", tag.attributes.get("title"));
+    }
+
+    @Test
+    public void lazyEntitiesDecodeAsTheParseWould() throws IOException {
+        String html = "<p title='&lt;One&gt; &amp two' data-x=\"&quot;a&quot;: &#x31;&\" class=a&copy=b&amp=c>" +
+            "One &amp; two &lt;three&gt; &nbsp;&#32; &ampx &notin; &notit; &#0; &unknown; &</p>" +
+            "<table>&#32;<tr><td>&amp;</td></tr></table><textarea>&lt;</textarea><script>&amp;</script>";
+        Document doc = Jsoup.parse(html);
+        Document lazy = Jsoup.parse(html, "", Parser.htmlParser().setLazyEntities(true));
+        assertTrue(lazy.parser().isLazyEntities());
+        assertEquals(doc.html(), lazy.html());
+        assertEquals("<One> & two", lazy.selectFirst("p").attr("title"));
+
+        String[] files = {"/htmltests/news-com-au-home.html.gz", "/htmltests/google-ipod.html.gz", "/htmltests/yahoo-jp.html.gz"};
+        for (String file : files) {
+            String input = ParseTest.getFileAsString(ParseTest.getFile(file));
+            Parser parser = Parser.htmlParser().setLazyEntities(true);
+            assertEquals(Jsoup.parse(input).html(), Jsoup.parse(input, "", parser).html(), file);
+        }
+    }
+
+    @Test
+    public void skipsContent() {
+        String html = "<head><style>p { color: red }</style><script>var a = '</div>';</script></head>" +
+            "<body><div>One<svg><g><svg><text>x</text></svg><script>'</svg>'</script></g></svg>Two</div>" +
+            "<p>Three<SVG><svg>Four</svg></SVG></p><p>Five</p>";
+        Parser parser = Parser.htmlParser().setSkipContent("script", "STYLE", "svg");
+        assertArrayEquals(new String[]{"script", "style", "svg"}, parser.getSkipContent());
+        Document doc = Jsoup.parse(html, "", parser);
+
+        Document full = Jsoup.parse(html);
+        for (Element el : full.select("script, style, svg"))
+            el.empty();
+        assertEquals(full.html(), doc.html());
+        assertEquals("One Two", doc.selectFirst("div").text());
+        assertEquals(0, doc.select("script").first().childNodeSize());
+        assertEquals(2, doc.select("svg").size()); // the nested svgs and script are skipped
+        assertEquals("Five", doc.select("p").get(1).text());
+        assertEquals(-1, Parser.skippedLength(doc.selectFirst("div")));
+        assertEquals(-1, Parser.skippedLength(doc.selectFirst("svg"))); // not recorded by default
+    }
+
+    @Test
+    public void recordsSkippedLength() {
+        String script = "if (a < b) { document.write('<p>') }";
+        String svg = "<g><svg></svg><text>Hi</text></g>";
+        String html = "<script>" + script + "</script><div><svg>" + svg + "</svg ><textarea>One</textarea><b></b>";
+        Parser parser = Parser.htmlParser().setSkipContent("script", "svg", "textarea", "b").setRecordSkippedLength(true);
+        Document doc = Jsoup.parse(html, "", parser.newInstance());
+        assertTrue(doc.parser().isRecordSkippedLength());
+
+        assertEquals(script.length(), Parser.skippedLength(doc.selectFirst("script")));
+        assertEquals(svg.length(), Parser.skippedLength(doc.selectFirst("svg")));
+        assertEquals(3, Parser.skippedLength(doc.selectFirst("textarea")));
+        assertEquals(0, Parser.skippedLength(doc.selectFirst("b")));
+        assertEquals("<svg></svg>", doc.selectFirst("svg").outerHtml()); // the length is not output
+
+        Document unclosed = Jsoup.parse("<div>One<svg>Two", "", parser);
+        assertEquals(3, Parser.skippedLength(unclosed.selectFirst("svg")));
+        assertEquals("One", unclosed.selectFirst("div").text());
+
+        Element div = unclosed.selectFirst("div");
+        assertFalse(NodeAccess.get().hasAttributes(div));
+        assertEquals(-1, Parser.skippedLength(div));
+        assertFalse(NodeAccess.get().hasAttributes(div)); // not allocated by the lookup
+        Attributes svgAttributes = unclosed.selectFirst("svg").attributes();
+        assertTrue(svgAttributes.hasKey(NodeAccess.get().internalKey("jsoup.skippedLength"))); // the internal key
+        assertEquals(0, svgAttributes.asList().size()); // which is hidden
+    }
+
+    @Test
+    public void skipsContentUntilTheElementCloses() {
+        String[][] cases = {
+            {"li", "<ul><li>One<li>Two</ul><p>Three"},
+            {"p", "<p>One<div>Two</div><p>Three"},
+            {"td", "<table><tr><td>One<td>Two</table><p>Three"},
+            {"option", "<select><option>One<option>Two</select><p>Three"},
+            {"b", "<div><b>One</div><p>Two</p>"},
+            {"b", "<b>One<p>Two</b>Three"},
+            {"svg", "<div><svg><g>One</div><p>Two"},
+            {"table", "<table><div>One</div><tr><td>Two</table>Three"},
+            {"div", "<div>One<script>'</div>'</script>Two</div>Three"},
+            {"body", "<body>One</body></html>\n<script>Two</script>"},
+        };
+        for (String[] c : cases) {
+            Document full = Jsoup.parse(c[1]);
+            for (Element el : full.getElementsByTag(c[0]))
+                el.empty();
+            Document doc = Jsoup.parse(c[1], "", Parser.htmlParser().setSkipContent(c[0]));
+            assertEquals(full.html(), doc.html(), c[1]);
+        }
+
+        Parser parser = Parser.htmlParser().setSkipContent("li").setRecordSkippedLength(true);
+        Document doc = Jsoup.parse("<ul><li>One<li><b>Two</b></ul>", "", parser);
+        assertEquals(3, Parser.skippedLength(doc.select("li").get(0))); // ended by the next li
+        assertEquals(10, Parser.skippedLength(doc.select("li").get(1))); // ended by the ul
+        assertEquals("<ul><li></li><li></li></ul>", TextUtil.stripNewlines(doc.body().html()));
+    }
+
+    @Test
+    public void skipsContentInFiles() throws IOException {
+        String[] files = {"/htmltests/news-com-au-home.html.gz", "/htmltests/google-ipod.html.gz", "/htmltests/yahoo-jp.html.gz"};
+        for (String file : files) {
+            String input = ParseTest.getFileAsString(ParseTest.getFile(file));
+            Document full = Jsoup.parse(input);
+            for (Element el : full.select("script, style"))
+                el.empty();
+            Document doc = Jsoup.parse(input, "", Parser.htmlParser().setSkipContent("script", "style"));
+            assertEquals(full.html(), doc.html(), file);
+        }
+    }
 }
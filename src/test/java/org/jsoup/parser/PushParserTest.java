@@ -0,0 +1,110 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.TextUtil;
+import org.jsoup.integration.ParseTest;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PushParserTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test public void parsesCharChunksSameAsDom() throws IOException {
+        String[] files = {"/htmltests/news-com-au-home.html.gz", "/htmltests/google-ipod.html.gz", "/htmltests/xwiki-edit.html.gz"};
+        Random random = new Random(1);
+        for (String file : files) {
+            String html = ParseTest.getFileAsString(ParseTest.getFile(file));
+            PushParser push = new PushParser(Parser.htmlParser(), "http://example.com");
+            int pos = 0;
+            while (pos < html.length()) {
+                int end = Math.min(html.length(), pos + 1 + random.nextInt(5000));
+                push.feed(CharBuffer.wrap(html, pos, end));
+                pos = end;
+            }
+            assertEquals(Jsoup.parse(html, "http://example.com").html(), push.finish().html(), file);
+        }
+    }
+
+    @Test public void parsesByteChunksSplittingCharacters() throws IOException {
+        String html = ParseTest.getFileAsString(ParseTest.getFile("/htmltests/xwiki-edit.html.gz"))
+            + "<p>Ĉu vi ŝatas € kaj 😀?</p>";
+        byte[] bytes = html.getBytes(UTF_8);
+
+        PushParser push = new PushParser(Parser.htmlParser(), "", UTF_8);
+        for (int i = 0; i < bytes.length; i += 7) {
+            push.feed(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i)));
+        }
+        Document doc = push.finish();
+        assertEquals(Jsoup.parse(html).html(), doc.html());
+        assertEquals("Ĉu vi ŝatas € kaj 😀?", doc.select("p").last().text());
+        assertEquals(UTF_8, doc.charset());
+    }
+
+    @Test public void parsesBeforeFinish() {
+        PushParser push = new PushParser(Parser.htmlParser(), "");
+        assertNull(push.document());
+        for (int i = 0; i < 2000; i++) {
+            push.feed(CharBuffer.wrap("<div><p>Paragraph " + i + "</p></div>\n"));
+        }
+        Document doc = push.document();
+        assertNotNull(doc);
+        int parsed = doc.select("p").size();
+        assertTrue(parsed > 1000 && parsed < 2000, "Parsed " + parsed);
+
+        assertSame(doc, push.finish());
+        assertEquals(2000, doc.select("p").size());
+        assertEquals("Paragraph 1999", doc.select("p").last().text());
+    }
+
+    @Test public void resumesTokensLongerThanTheReadAhead() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("comment ").append(i).append(" -- ");
+        }
+        String data = sb.toString();
+        String html = "<div title='" + data + "'>One</div><!--" + data + "--><p>Two &amp; &notin; three</p>";
+
+        PushParser push = new PushParser(Parser.htmlParser(), "");
+        for (int i = 0; i < html.length(); i += 100) {
+            push.feed(CharBuffer.wrap(html, i, Math.min(html.length(), i + 100)));
+        }
+        Document doc = push.finish();
+        assertEquals(data, doc.selectFirst("div").attr("title"));
+        assertEquals(data, ((Comment) doc.body().childNode(1)).getData());
+        assertEquals("Two & ∉ three", doc.selectFirst("p").text());
+        assertEquals(Jsoup.parse(html).html(), doc.html());
+    }
+
+    @Test public void parsesXml() {
+        PushParser push = new PushParser(Parser.xmlParser(), "");
+        push.feed(CharBuffer.wrap("<?xml version='1.0'?><feed><entry>One"));
+        push.feed(CharBuffer.wrap("</entry><entry>Two</entry></feed>"));
+        assertEquals("<?xml version=\"1.0\"?><feed><entry>One</entry><entry>Two</entry></feed>",
+            TextUtil.stripNewlines(push.finish().html()));
+    }
+
+    @Test public void skipsByteOrderMark() {
+        PushParser push = new PushParser(Parser.htmlParser(), "", UTF_8);
+        push.feed(ByteBuffer.wrap(new byte[]{(byte) 0xEF, (byte) 0xBB}));
+        push.feed(ByteBuffer.wrap(new byte[]{(byte) 0xBF, 'O', 'n', 'e'}));
+        assertEquals("One", push.finish().body().html());
+    }
+
+    @Test public void canNotFeedAfterFinish() {
+        PushParser push = new PushParser(Parser.htmlParser(), "");
+        push.feed(CharBuffer.wrap("<p>One"));
+        Document doc = push.finish();
+        assertEquals("One", doc.text());
+        assertSame(doc, push.finish());
+        assertThrows(IllegalArgumentException.class, () -> push.feed(CharBuffer.wrap("Two")));
+    }
+}
@@ -0,0 +1,143 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.integration.ParseTest;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamHandlerTest {
+
+    @Test public void reportsSimpleDocument() {
+        String html = "<!doctype html><title>One</title><p id=1>Two <b>Three</b></p><!-- four -->";
+        assertEquals("<html><head><title>One</title></head><body><p id=\"1\">Two <b>Three</b></p><!-- four --></body></html>",
+            stream(html, Parser.htmlParser()));
+    }
+
+    @Test public void matchesDomForImpliedAndFosteredStructure() {
+        String[] inputs = {
+            "<p>One<p>Two<div>Three</div>",
+            "<table><tr><td>One<td>Two</table>Three",
+            "<table>Foster<tr><td>Cell</td></tr></table>",
+            "<ul><li>One<li>Two</ul><dl><dt>A<dd>B</dl>",
+            "<div><img src=foo.png><br>Text<hr></div>",
+            "<script>if (a < b) x();</script><style>p {}</style>",
+            "<select><option>One<option>Two</select>",
+            "<p>One</body></html>\n",
+            "One <!-- comment --> Two",
+            "<b>1<p>2</b>3</p>",
+        };
+        for (String html : inputs) {
+            assertEquals(domEvents(Jsoup.parse(html)), stream(html, Parser.htmlParser()), html);
+        }
+    }
+
+    @Test public void matchesDomForXml() {
+        String xml = "<?xml version='1.0'?><feed><entry id=1><title>One</title></entry><entry id=2/><x><![CDATA[<y>]]></x></feed>";
+        assertEquals(domEvents(Jsoup.parse(xml, "", Parser.xmlParser())), stream(xml, Parser.xmlParser()));
+    }
+
+    @Test public void matchesDomForLargeDocuments() throws IOException {
+        String[] files = {"/htmltests/news-com-au-home.html.gz", "/htmltests/google-ipod.html.gz", "/htmltests/xwiki-edit.html.gz"};
+        for (String file : files) {
+            String html = ParseTest.getFileAsString(ParseTest.getFile(file));
+            assertEquals(domEvents(Jsoup.parse(html)), stream(html, Parser.htmlParser()), file);
+        }
+    }
+
+    @Test public void reportsContentAfterHtmlInPlace() {
+        // the DOM moves this back into the body, but the body has already been reported as complete
+        String html = "<p>One</body></html> <p>Two";
+        assertEquals("<html><head></head><body><p>One</p></body></html> <p>Two</p>", stream(html, Parser.htmlParser()));
+    }
+
+    @Test public void onlyRetainsOpenElements() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("<div><p>Para ").append(i).append("</p></div>");
+        }
+
+        final Parser parser = Parser.htmlParser();
+        final int[] maxSize = {0};
+        parser.parseInput(new StringReader(sb.toString()), "", new StreamHandler() {
+            public void startElement(String name, Attributes attributes) {
+                HtmlTreeBuilder tb = (HtmlTreeBuilder) parser.getTreeBuilder();
+                int size = tb.getDocument().getAllElements().size();
+                if (size > maxSize[0])
+                    maxSize[0] = size;
+            }
+            public void endElement(String name) {}
+            public void text(String text) {}
+            public void comment(String data) {}
+        });
+        assertTrue(maxSize[0] <= 6); // #root, html, body, and the open div, p; not the whole document
+    }
+
+    static String stream(String input, Parser parser) {
+        final StringBuilder sb = new StringBuilder();
+        parser.parseInput(new StringReader(input), "", new StreamHandler() {
+            public void startElement(String name, Attributes attributes) {
+                appendStart(sb, name, attributes);
+            }
+
+            public void endElement(String name) {
+                sb.append("</").append(name).append(">");
+            }
+
+            public void text(String text) {
+                sb.append(text);
+            }
+
+            public void comment(String data) {
+                sb.append("<!--").append(data).append("-->");
+            }
+        });
+        return sb.toString();
+    }
+
+    static String domEvents(Document doc) {
+        final StringBuilder sb = new StringBuilder();
+        for (Node child : doc.childNodes()) {
+            NodeTraversor.traverse(new NodeVisitor() {
+                public void head(Node node, int depth) {
+                    if (node instanceof Element)
+                        appendStart(sb, ((Element) node).tagName(), node.attributes());
+                    else if (node instanceof TextNode)
+                        sb.append(((TextNode) node).getWholeText());
+                    else if (node instanceof DataNode)
+                        sb.append(((DataNode) node).getWholeData());
+                    else if (node instanceof Comment)
+                        sb.append("<!--").append(((Comment) node).getData()).append("-->");
+                }
+
+                public void tail(Node node, int depth) {
+                    if (node instanceof Element)
+                        sb.append("</").append(((Element) node).tagName()).append(">");
+                }
+            }, child);
+        }
+        return sb.toString();
+    }
+
+    private static void appendStart(StringBuilder sb, String name, Attributes attributes) {
+        sb.append("<").append(name);
+        for (Attribute attribute : attributes) {
+            sb.append(" ").append(attribute.getKey()).append("=\"").append(attribute.getValue()).append("\"");
+        }
+        sb.append(">");
+    }
+}
@@ -0,0 +1,95 @@
+package org.jsoup.parser;
+
+import org.jsoup.integration.ParseTest;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamParserTest {
+
+    @Test public void returnsElementsInCloseOrder() {
+        StreamParser streamer = new StreamParser(Parser.htmlParser())
+            .parse("<title>Test</title><div id=1><p>One<p>Two<img src=foo></div>", "");
+
+        StringBuilder seen = new StringBuilder();
+        Element el;
+        while ((el = streamer.nextElement()) != null) {
+            seen.append(el.normalName()).append(el.id()).append(";");
+        }
+        assertEquals("title;head;p;img;p;div1;body;html;", seen.toString());
+        assertEquals("<div id=\"1\"><p>One</p><p>Two<img src=\"foo\"></p></div>",
+            streamer.document().body().html().replace("\n", "").replace(" <", "<"));
+    }
+
+    @Test public void elementIsCompleteWhenReturned() {
+        StreamParser streamer = new StreamParser(Parser.htmlParser())
+            .parse("<ul><li>One<li>Two</ul><p>After", "");
+        Element el;
+        while ((el = streamer.nextElement()) != null) {
+            if (el.normalName().equals("ul")) {
+                assertEquals(2, el.children().size());
+                assertEquals("One Two", el.text());
+                // the rest is not yet parsed
+                assertEquals(0, streamer.document().select("p").size());
+            }
+        }
+        assertEquals(1, streamer.document().select("p").size());
+    }
+
+    @Test public void canRemoveElementsToBoundMemory() {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0'?><feed>");
+        for (int i = 0; i < 2000; i++) {
+            xml.append("<entry id=").append(i).append("><title>Title ").append(i).append("</title></entry>");
+        }
+        xml.append("</feed>");
+
+        StreamParser streamer = new StreamParser(Parser.xmlParser()).parse(new StringReader(xml.toString()), "");
+        Iterator<Element> it = streamer.iterator();
+        int entries = 0;
+        int maxSize = 0;
+        while (it.hasNext()) {
+            Element el = it.next();
+            if (el.normalName().equals("entry")) {
+                assertEquals("Title " + entries, el.selectFirst("title").text());
+                assertEquals(String.valueOf(entries), el.id());
+                entries++;
+                it.remove();
+            }
+            maxSize = Math.max(maxSize, streamer.document().getAllElements().size());
+        }
+        assertEquals(2000, entries);
+        assertTrue(maxSize <= 4); // #root, feed, entry, title
+        assertEquals(0, streamer.document().select("entry").size());
+        assertEquals(1, streamer.document().select("feed").size());
+    }
+
+    @Test public void completeMatchesDomParse() throws IOException {
+        String html = ParseTest.getFileAsString(ParseTest.getFile("/htmltests/news-com-au-home.html.gz"));
+        StreamParser streamer = new StreamParser(Parser.htmlParser()).parse(html, "http://example.com");
+        streamer.nextElement();
+        Document doc = streamer.complete();
+        assertEquals(Parser.parse(html, "http://example.com").html(), doc.html());
+        assertNull(streamer.nextElement());
+    }
+
+    @Test public void canCloseEarly() {
+        StreamParser streamer = new StreamParser(Parser.htmlParser()).parse("<p>One<p>Two<p>Three", "");
+        assertEquals("head", streamer.nextElement().normalName());
+        Element first = streamer.nextElement();
+        assertEquals("One", first.text());
+        streamer.close();
+        assertNull(streamer.nextElement());
+        assertEquals(2, streamer.document().select("p").size()); // the second p was opened, which closed the first
+        assertEquals("", streamer.document().select("p").get(1).text());
+
+        // reusable for a new parse
+        streamer.parse("<i>Four</i>", "");
+        assertEquals("Four", streamer.complete().text());
+    }
+}
@@ -1,6 +1,7 @@
 package org.jsoup.parser;
 
 import org.jsoup.MultiLocaleExtension.MultiLocaleTest;
+import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.Test;
 
 import java.util.Locale;
@@ -171,4 +172,44 @@ public class TagTest {
 
         assertSame(foo, foo2);
     }
+
+    @Test public void knownTagFromCharRange() {
+        char[] buf = "<DiV class=x><p>".toCharArray();
+        assertSame(Tag.valueOf("div"), Tag.knownTag(buf, 1, 3));
+        assertSame(Tag.valueOf("p"), Tag.knownTag(buf, 14, 1));
+        assertNull(Tag.knownTag(buf, 1, 2)); // "Di"
+        assertNull(Tag.knownTag(buf, 5, 5)); // "class"
+        assertSame(Tag.valueOf("script"), Tag.knownTag("SCRIPT"));
+        assertNull(Tag.knownTag("scripK")); // only ASCII case folded here; Tag.valueOf handles the rest
+    }
+
+    @Test public void normalNameOfKnownTagIsRegisteredName() {
+        String name = Tag.valueOf("div").normalName();
+        assertSame(name, Tag.normalName("DIV"));
+        assertEquals("foo", Tag.normalName("FOO"));
+    }
+
+    @Test public void caseSensitiveKnownTagsAreCached() {
+        Tag div1 = Tag.valueOf("DIV", ParseSettings.preserveCase);
+        Tag div2 = Tag.valueOf("DIV", ParseSettings.preserveCase);
+        assertSame(div1, div2);
+        assertEquals("DIV", div1.getName());
+        assertEquals("div", div1.normalName());
+        assertTrue(div1.isBlock());
+        assertSame(Tag.valueOf("div"), Tag.valueOf("DIV", ParseSettings.htmlDefault));
+    }
+
+    @Test public void selfClosingUnknownTagIsNotShared() {
+        Tag foo = Tag.valueOf("self-closing-foo");
+        Tag selfClosing = foo.selfClosingVariant();
+        assertNotSame(foo, selfClosing);
+        assertFalse(foo.isSelfClosing());
+        assertTrue(selfClosing.isSelfClosing());
+        assertSame(selfClosing, foo.selfClosingVariant());
+        assertSame(selfClosing, selfClosing.selfClosingVariant());
+
+        Document doc = Parser.xmlParser().parseInput("<x><bar/><bar>One</bar></x>", "");
+        doc.outputSettings().prettyPrint(false);
+        assertEquals("<x><bar /><bar>One</bar></x>", doc.html());
+    }
 }
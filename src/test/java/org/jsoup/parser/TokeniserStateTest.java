@@ -22,7 +22,6 @@ public class TokeniserStateTest {
     @Test
     public void ensureSearchArraysAreSorted() {
         char[][] arrays = {
-            TokeniserState.attributeNameCharsSorted,
             TokeniserState.attributeValueUnquoted
         };
 
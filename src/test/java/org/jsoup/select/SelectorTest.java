@@ -2,11 +2,13 @@ package org.jsoup.select;
 
 import org.jsoup.Jsoup;
 import org.jsoup.MultiLocaleExtension.MultiLocaleTest;
+import org.jsoup.integration.ParseTest;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.parser.Parser;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.util.Locale;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -973,4 +975,186 @@ public class SelectorTest {
         assertEquals(outer, span);
         assertNotEquals(outer, inner);
     }
+
+    @Test public void compiledQueriesAreCached() {
+        Evaluator eval = Selector.compile("div.foo > p");
+        assertSame(eval, Selector.compile("div.foo > p"));
+        assertTrue(Selector.cacheHits() > 0);
+        assertTrue(Selector.cacheMisses() > 0);
+
+        Document doc = Jsoup.parse("<div class=foo><p>One</p></div><div><p>Two</p></div>");
+        assertEquals("One", doc.select(eval).text());
+        assertEquals("One", doc.select("div.foo > p").text());
+        assertThrows(Selector.SelectorParseException.class, () -> Selector.compile("div["));
+    }
+
+    @Test public void queryCacheEvictsLeastRecentlyUsed() {
+        QueryCache cache = new QueryCache();
+        cache.maxSize(2);
+        Evaluator a = cache.get("a");
+        Evaluator b = cache.get("b");
+        assertSame(a, cache.get("a")); // a is now the most recently used
+        cache.get("c"); // evicts b
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a"));
+        assertNotSame(b, cache.get("b"));
+        assertEquals(2, cache.hits());
+        assertEquals(4, cache.misses());
+
+        assertThrows(Selector.SelectorParseException.class, () -> cache.get("p:nth-child("));
+        assertEquals(5, cache.misses());
+        assertEquals(2, cache.size());
+
+        cache.maxSize(1);
+        assertEquals(1, cache.size());
+        assertSame(cache.get("b"), cache.get("b"));
+        cache.maxSize(0);
+        assertEquals(0, cache.size());
+        assertNotSame(cache.get("b"), cache.get("b"));
+
+        cache.clear();
+        assertEquals(0, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test public void andRunsCheapestEvaluatorsFirst() {
+        Document doc = Jsoup.parse("<div id=main>foo bar</div><div>foo bar</div><p id=main>foo bar</p>");
+        final int[] calls = {0};
+        Evaluator costly = new Evaluator() {
+            @Override public boolean matches(Element root, Element element) {
+                calls[0]++;
+                return element.text().contains("foo");
+            }
+
+            @Override protected int cost() {
+                return 100;
+            }
+        };
+        Evaluator and = new CombiningEvaluator.And(costly, new Evaluator.Tag("div"), new Evaluator.Id("main"));
+        assertEquals(1, doc.select(and).size());
+        assertEquals(1, calls[0]); // only run for the element that passed the tag and id tests
+        assertEquals(":matches(foo.*bar) div #main", Selector.compile(":matches(foo.*bar)div#main").toString()); // query order kept
+
+        Elements els = doc.select("div:matches(foo.*bar)#main");
+        assertEquals(1, els.size());
+        assertEquals("div", els.first().tagName());
+        assertEquals(2, doc.select(":containsOwn(foo)[id]:not(p), p:contains(bar)#main").size());
+    }
+
+    @Test public void costsSaturateRatherThanOverflow() {
+        Document doc = Jsoup.parse("<div id=main>foo bar</div><div>foo bar</div><p id=main>foo bar</p>");
+        final int[] calls = {0};
+        Evaluator costly = new Evaluator() {
+            @Override public boolean matches(Element root, Element element) {
+                calls[0]++;
+                return true;
+            }
+
+            @Override protected int cost() {
+                return Integer.MAX_VALUE;
+            }
+        };
+        Evaluator and = new CombiningEvaluator.And(costly, costly, new Evaluator.Tag("div"), new Evaluator.Id("main"));
+        assertTrue(and.cost() > 0);
+        assertTrue(new StructuralEvaluator.Has(and).cost() > 0);
+        assertEquals(1, doc.select(and).size());
+        assertEquals(2, calls[0]); // the costly evaluators run last, only for the element that passed the others
+
+        Evaluator nested = Selector.compile("div:has(p:has(a:has(b:has(i:has(u:has(s:has(em:has(span:has(img)))))))))");
+        assertTrue(nested.cost() > 0);
+        StringBuilder deep = new StringBuilder("div");
+        for (int i = 0; i < 12; i++)
+            deep.append(":has(p");
+        for (int i = 0; i < 12; i++)
+            deep.append(")");
+        Evaluator deeper = Selector.compile(deep.toString());
+        assertEquals(Evaluator.MaxCost, deeper.cost());
+        assertTrue(new CombiningEvaluator.And(deeper, deeper, deeper).cost() > 0);
+    }
+
+    @Test public void keepsOrderWithMatchText() {
+        Document doc = Jsoup.parse("<p>One<br>Two</p><div>Three<br>Four</div>");
+        Elements found = doc.select(":containsOwn(Two):matchText");
+        assertEquals(1, found.size());
+        assertEquals("Two", found.text());
+        assertEquals(3, doc.selectFirst("p").children().size()); // the p's text was split into elements
+        assertEquals(1, doc.selectFirst("div").children().size()); // but matchText wasn't run on the div
+    }
+
+    @Test public void descendantQueryTestsEachAncestorOnce() {
+        Document doc = new Document("");
+        Element el = doc.appendElement("a").addClass("x").appendElement("b").addClass("y");
+        int depth = 500;
+        for (int i = 0; i < depth; i++)
+            el = el.appendElement("div").appendElement("c").addClass("z");
+
+        final int[] calls = {0};
+        Evaluator isB = new Evaluator() {
+            @Override public boolean matches(Element root, Element element) {
+                calls[0]++;
+                return element.hasClass("y");
+            }
+        };
+        Evaluator query = new CombiningEvaluator.And(new Evaluator.Tag("c"), new StructuralEvaluator.Parent(isB));
+        assertEquals(depth, doc.select(query).size());
+        assertTrue(calls[0] < depth * 10, "Ancestor tests: " + calls[0]); // vs depth * depth without the memo
+
+        calls[0] = 0;
+        assertTrue(el.is(query)); // a direct test walks the ancestors
+        assertEquals(depth * 2, calls[0]);
+        assertEquals(depth, doc.select("a.x b.y c.z").size());
+        assertEquals(0, doc.select("a.x c.z b.y").size());
+        assertEquals(depth - 1, doc.select("c.z div c.z").size());
+        assertEquals(depth, doc.selectFirst("b").select("b c").size()); // the b is the root, so matches
+    }
+
+    @Test public void hasMatchesDirectTests() throws IOException {
+        Document doc = Jsoup.parse(ParseTest.getFile("/htmltests/news-com-au-home.html.gz"), "UTF-8");
+        String[] queries = {"div:has(img)", "li:has(a[href])", ":has(:has(img))", "div:has(ul li a)", "ul:has(> li)",
+            "div:not(:has(p))", ":has(img):has(a)", "div:has(:containsOwn(news))", ":has(span, img) > a"};
+        for (String query : queries) {
+            Evaluator eval = Selector.compile(query);
+            Elements expected = new Elements();
+            for (Element el : doc.getAllElements()) {
+                if (el.is(eval)) // tested directly, without the query execution's memo
+                    expected.add(el);
+            }
+            assertTrue(expected.size() > 0, query);
+            assertEquals(expected, doc.select(eval), query);
+        }
+    }
+
+    @Test public void hasSearchesEachSubtreeOnce() {
+        final int[] calls = {0};
+        class CountingElement extends Element {
+            CountingElement(String tag) {
+                super(tag);
+            }
+
+            @Override public String normalName() {
+                calls[0]++;
+                return super.normalName();
+            }
+        }
+
+        Document doc = new Document("");
+        Element el = doc.appendElement("body");
+        int depth = 1000;
+        for (int i = 0; i < depth; i++) {
+            Element div = new CountingElement("div");
+            el.appendChild(div);
+            el = div;
+        }
+
+        calls[0] = 0;
+        assertEquals(0, doc.select("div:has(img)").size());
+        assertTrue(calls[0] < depth * 4, "Tag tests: " + calls[0]); // vs depth * depth / 2 without the memo
+
+        el.appendChild(new CountingElement("img"));
+        calls[0] = 0;
+        assertEquals(depth, doc.select("div:has(img)").size());
+        assertTrue(calls[0] < depth * 4, "Tag tests: " + calls[0]);
+        assertEquals(depth + 2, doc.select(":has(img)").size()); // the divs, body, and html
+        assertEquals(1, doc.select("div:not(:has(div))").size());
+    }
 }
@@ -0,0 +1,159 @@
+package org.jsoup.select;
+
+import org.jsoup.Jsoup;
+import org.jsoup.integration.ParseTest;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamSelectorTest {
+
+    @Test public void selectsMatchesInCloseOrder() {
+        StreamSelector selector = new StreamSelector(Parser.htmlParser(), "p", "div.x")
+            .parse("<div class=x><p>One<p>Two</div><div><p>Three</div>", "");
+        Elements found = selector.selectAll();
+        assertEquals(4, found.size());
+        assertEquals("One", found.get(0).text());
+        assertEquals("Two", found.get(1).text());
+        assertEquals("One Two", found.get(2).text());
+        assertTrue(found.get(2).is("div.x"));
+        assertEquals("Three", found.get(3).text());
+        assertNull(selector.selectNext());
+    }
+
+    @Test public void matchesSameAsSelect() throws IOException {
+        String[] files = {"/htmltests/news-com-au-home.html.gz", "/htmltests/google-ipod.html.gz", "/htmltests/xwiki-edit.html.gz"};
+        String[] queries = {"a[href]", "title", "meta[name]", "div a img", "ul > li > a", "li:has(a)", "td:contains(ipod)",
+            "div:has(img)", "li + li", "tr:nth-child(2)", "[id]", "p:empty"};
+        for (String file : files) {
+            String html = ParseTest.getFileAsString(ParseTest.getFile(file));
+            Document doc = Jsoup.parse(html);
+            for (String query : queries) {
+                StreamSelector selector = new StreamSelector(Parser.htmlParser(), query).parse(html, "");
+                assertEquals(outerHtml(doc.select(query)), outerHtml(selector.selectAll()), file + ": " + query);
+            }
+        }
+    }
+
+    @Test public void prunesNonMatchingContent() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("<div class=item><h2>Item ").append(i).append("</h2><p>Some <b>text</b> <a href=/").append(i)
+                .append(">link</a></p></div>\n");
+        }
+
+        StreamSelector selector = new StreamSelector(Parser.htmlParser(), "div.item a[href]").parse(new StringReader(sb.toString()), "");
+        int count = 0;
+        int maxSize = 0;
+        Element el;
+        while ((el = selector.selectNext()) != null) {
+            assertEquals("/" + count, el.attr("href"));
+            count++;
+            maxSize = Math.max(maxSize, selector.document().getAllElements().size());
+        }
+        assertEquals(1000, count);
+        assertTrue(maxSize <= 8, "Retained " + maxSize); // #root, html, head, body, and the open div, p, a
+        assertEquals(0, selector.document().select("div, p, a").size());
+    }
+
+    @Test public void retainsContentOfPossibleMatches() {
+        String html = "<div id=1><p>One</p><span><img src=foo></span></div><div id=2><p>Two</p></div><section><p>Three</section>";
+        StreamSelector selector = new StreamSelector(Parser.htmlParser(), "div:has(img)").parse(html, "");
+        Element div = selector.selectNext();
+        assertEquals("<div id=\"1\"><p>One</p><span><img src=\"foo\"></span></div>", div.outerHtml().replace("\n", "").replaceAll(">\\s+<", "><"));
+        assertNull(selector.selectNext());
+        assertEquals(0, selector.document().select("div, p").size());
+    }
+
+    @Test public void keepsSiblingsForSiblingQueries() {
+        StreamSelector selector = new StreamSelector(Parser.htmlParser(), "li:nth-child(3)", "li + li")
+            .parse("<ul><li>1<li>2<li>3<li>4</ul>", "");
+        Elements found = selector.selectAll();
+        assertEquals(3, found.size());
+        assertEquals("2", found.get(0).text());
+        assertEquals("3", found.get(1).text());
+        assertEquals("4", found.get(2).text());
+    }
+
+    @Test public void waitsOnContentDependentAncestors() {
+        String[][] cases = {
+            {"div:contains(a) p", "<div><p>a</p><p>b</p></div>"},
+            {"div:contains(foo) p", "<div><p>a</p>foo<p>b</p></div>"},
+            {"div:has(img) p", "<div><p>a</p><img><p>b</p></div>"},
+            {"div:has(img) > p", "<div><p>a</p><div><p>b</p></div><img><p>c</p></div><div><p>d</p></div>"},
+            {"section:has(img) div p", "<section><div><p>a</p></div><img></section><section><div><p>b</p></div></section>"},
+            {"li:last-child p", "<ul><li><p>a</p></li><li><p>b</p></li></ul>"},
+            {":has(img) p", "<div><p>a</p><img></div><p>b</p>"},
+        };
+        for (String[] c : cases) {
+            Document doc = Jsoup.parse(c[1]);
+            StreamSelector selector = new StreamSelector(Parser.htmlParser(), c[0]).parse(c[1], "");
+            assertEquals(outerHtml(doc.select(c[0])), outerHtml(selector.selectAll()), c[0]);
+        }
+    }
+
+    @Test public void prunesAroundContentDependentAncestors() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append("<section><p>Skip ").append(i).append("</p></section><div><p>Item ").append(i).append("</p>")
+                .append(i % 2 == 0 ? "<img>" : "").append("</div>\n");
+        }
+
+        StreamSelector selector = new StreamSelector(Parser.htmlParser(), "div:has(img) p").parse(sb.toString(), "");
+        int count = 0;
+        int maxSize = 0;
+        Element el;
+        while ((el = selector.selectNext()) != null) {
+            assertEquals("Item " + count, el.text());
+            count += 2;
+            maxSize = Math.max(maxSize, selector.document().getAllElements().size());
+        }
+        assertEquals(500, count); // every second item
+        assertTrue(maxSize <= 8, "Retained " + maxSize);
+    }
+
+    @Test public void selectsFromXml() {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0'?><feed><title>Feed</title>");
+        for (int i = 0; i < 500; i++) {
+            xml.append("<entry id=").append(i).append("><title>Title ").append(i).append("</title></entry>");
+        }
+        xml.append("</feed>");
+
+        StreamSelector selector = new StreamSelector(Parser.xmlParser(), "entry > title").parse(xml.toString(), "");
+        int count = 0;
+        Element el;
+        while ((el = selector.selectNext()) != null) {
+            assertEquals("Title " + count++, el.text());
+            assertTrue(selector.document().getAllElements().size() <= 4);
+        }
+        assertEquals(500, count);
+    }
+
+    @Test public void canCloseAndReuse() {
+        StreamSelector selector = new StreamSelector(Parser.htmlParser(), QueryParser.parse("p"));
+        selector.parse("<p>One<p>Two", "");
+        assertEquals("One", selector.selectNext().text());
+        selector.close();
+        assertNull(selector.selectNext());
+
+        selector.parse("<p>Three", "");
+        assertEquals("Three", selector.selectNext().text());
+    }
+
+    private static List<String> outerHtml(Elements els) {
+        List<String> html = new ArrayList<>();
+        for (Element el : els)
+            html.add(el.outerHtml());
+        Collections.sort(html); // the stream returns in close order
+        return html;
+    }
+}